@@ -0,0 +1,60 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.city.City;
+import ru.anyanov.city.RoadGraph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * City.hashCode и поиск города в HashMap по ключу-городу.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CityBenchmark {
+    // Степень двойки
+    private static final int CITIES = 4096;
+
+    private City[] cities;
+    private Map<City, Integer> indexes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        City[] all = SyntheticGraph.generate(SyntheticGraph.Topology.RANDOM_GEOMETRIC, 10000, 42)
+                .build(new RoadGraph());
+        SplittableRandom random = new SplittableRandom(7);
+        cities = new City[CITIES];
+        indexes = new HashMap<>();
+        for (int i = 0; i < CITIES; i++) {
+            cities[i] = all[random.nextInt(all.length)];
+            indexes.put(cities[i], i);
+        }
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return cities[next++ & (CITIES - 1)].hashCode();
+    }
+
+    @Benchmark
+    public Integer hashMapGet() {
+        return indexes.get(cities[next++ & (CITIES - 1)]);
+    }
+}
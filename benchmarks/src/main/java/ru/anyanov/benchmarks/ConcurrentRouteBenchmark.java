@@ -0,0 +1,93 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.anyanov.city.City;
+import ru.anyanov.city.RoadGraph;
+import ru.anyanov.city.Route;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы маршрутов в графе createConcurrent(), который одновременно меняет писатель:
+ * три потока ищут маршруты, один поток меняет граф. Каждое изменение делает снимок
+ * устаревшим, поэтому один из читателей собирает новый; по хвосту распределения
+ * времени запроса (p99, max) видно, ждут ли остальные читатели эту сборку,
+ * а по времени записи - задерживает ли сборка писателя.
+ * ROADS - писатель добавляет и удаляет дорогу, CITIES - добавляет новый город с дорогой.
+ * Запускать на машине хотя бы с четырьмя ядрами: иначе потоки делят процессор,
+ * и хвост распределения показывает в основном планировщик ОС.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class ConcurrentRouteBenchmark {
+    private static final int SIZE = 10000;
+    // Пауза писателя между изменениями, чтобы граф в режиме CITIES не рос без ограничений
+    private static final long WRITER_PAUSE = 2000;
+
+    public enum Change { ROADS, CITIES }
+
+    @Param({"ROADS", "CITIES"})
+    public Change change;
+
+    private RoadGraph graph;
+    private City[] cities;
+    private Route[] routes;
+    private SplittableRandom random;
+    private int created;
+
+    // Граф строится заново перед каждой итерацией, чтобы в режиме CITIES он не рос от итерации к итерации
+    @Setup(Level.Iteration)
+    public void setUp() {
+        graph = RoadGraph.createConcurrent();
+        cities = SyntheticGraph.generate(SyntheticGraph.Topology.GRID, SIZE, 42).build(graph);
+        graph.getRouteCache().setCapacity(0);
+        random = new SplittableRandom(7);
+        routes = new Route[RouteBenchmark.ROUTES];
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = new Route(cities[random.nextInt(SIZE)], cities[random.nextInt(SIZE)], Route.Mode.CHEAPEST);
+        }
+        routes[0].getRoute();
+        created = 0;
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public City[] query(RouteBenchmark.Cursor cursor) {
+        return cursor.next(routes).getRoute();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void write() {
+        City first = cities[random.nextInt(SIZE)];
+        if (change == Change.ROADS) {
+            City second = cities[random.nextInt(SIZE)];
+            first.addRoad(second, 10);
+            first.removeRoad(second);
+        } else {
+            new City("new" + created++, graph).addRoad(first, 10);
+        }
+        Blackhole.consumeCPU(WRITER_PAUSE);
+    }
+}
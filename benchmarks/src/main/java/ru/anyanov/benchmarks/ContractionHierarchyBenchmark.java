@@ -0,0 +1,54 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.city.City;
+import ru.anyanov.city.Route;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск маршрута по иерархии сжатия (Route.Mode.CONTRACTION_HIERARCHY).
+ * Безмасштабная сеть сюда не входит: из-за городов-хабов построение иерархии
+ * для нее занимает минуты уже на 10 000 городов, и запуск упирался бы в подготовку.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContractionHierarchyBenchmark {
+    @Param({"GRID", "RANDOM_GEOMETRIC"})
+    public SyntheticGraph.Topology topology;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private Route[] routes;
+
+    @Setup
+    public void setUp() {
+        routes = RouteBenchmark.randomRoutes(topology, size, Route.Mode.CONTRACTION_HIERARCHY);
+    }
+
+    @Benchmark
+    public City[] getRoute(RouteBenchmark.Cursor cursor) {
+        return cursor.next(routes).getRoute();
+    }
+
+    @Benchmark
+    public int getRouteIntoBuffer(RouteBenchmark.Cursor cursor) {
+        Route route = cursor.next(routes);
+        return route.getRoute(cursor.buffer(route));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.fraction.ExactFraction;
+import ru.anyanov.fraction.Fraction;
+import ru.anyanov.fraction.FractionAccumulator;
+import ru.anyanov.fraction.LongFraction;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сложение и умножение случайных дробей с числителями и знаменателями до 1000
+ * (результат помещается в int, переполнения нет): Fraction и те же значения
+ * в ExactFraction (вычисления в long), а также ExactFraction с компонентами
+ * около 2^40, у которых часть результатов переходит в BigInteger.
+ * Суммы всего массива: цепочкой ExactFraction.add и FractionAccumulator.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FractionBenchmark {
+    // Степень двойки
+    private static final int FRACTIONS = 1024;
+
+    private Fraction[] fractions;
+    private ExactFraction[] exactFractions;
+    private ExactFraction[] largeFractions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        fractions = new Fraction[FRACTIONS];
+        for (int i = 0; i < FRACTIONS; i++) {
+            fractions[i] = new Fraction(random.nextInt(-1000, 1001), random.nextInt(1, 1001));
+        }
+        exactFractions = new ExactFraction[FRACTIONS];
+        largeFractions = new ExactFraction[FRACTIONS];
+        for (int i = 0; i < FRACTIONS; i++) {
+            exactFractions[i] = ExactFraction.valueOf(fractions[i]);
+            largeFractions[i] = ExactFraction.valueOf(random.nextLong(-(1L << 40), 1L << 40),
+                    random.nextLong(1, 1L << 40));
+        }
+    }
+
+    @Benchmark
+    public Fraction add() {
+        int index = next++;
+        return fractions[index & (FRACTIONS - 1)].add(fractions[(index + 1) & (FRACTIONS - 1)]);
+    }
+
+    @Benchmark
+    public Fraction multiply() {
+        int index = next++;
+        return fractions[index & (FRACTIONS - 1)].multiply(fractions[(index + 1) & (FRACTIONS - 1)]);
+    }
+
+    @Benchmark
+    public ExactFraction exactAdd() {
+        int index = next++;
+        return exactFractions[index & (FRACTIONS - 1)].add(exactFractions[(index + 1) & (FRACTIONS - 1)]);
+    }
+
+    @Benchmark
+    public ExactFraction exactMultiply() {
+        int index = next++;
+        return exactFractions[index & (FRACTIONS - 1)].multiply(exactFractions[(index + 1) & (FRACTIONS - 1)]);
+    }
+
+    @Benchmark
+    public ExactFraction largeAdd() {
+        int index = next++;
+        return largeFractions[index & (FRACTIONS - 1)].add(largeFractions[(index + 1) & (FRACTIONS - 1)]);
+    }
+
+    @Benchmark
+    public ExactFraction sumExact() {
+        ExactFraction total = LongFraction.ZERO;
+        for (ExactFraction fraction : exactFractions) {
+            total = total.add(fraction);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public ExactFraction sumAccumulator() {
+        return new FractionAccumulator().addAll(fractions).toExactFraction();
+    }
+}
@@ -0,0 +1,99 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.fraction.ExactFraction;
+import ru.anyanov.fraction.Fraction;
+import ru.anyanov.fraction.FractionAccumulator;
+import ru.anyanov.fraction.FractionReader;
+import ru.anyanov.fraction.FractionWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение и запись текста из size дробей "a/b": FractionReader и FractionWriter
+ * в сравнении с разбором через String.split и Integer.parseInt и записью через toString.
+ * Текст лежит в памяти, чтобы измерялся разбор, а не диск.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FractionFormatBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    private Fraction[] fractions;
+    private byte[] text;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        fractions = new Fraction[size];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            fractions[i] = new Fraction(random.nextInt(-100000, 100001), random.nextInt(1, 1000));
+            builder.append(fractions[i]).append('\n');
+        }
+        text = builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public ExactFraction parseStrings() {
+        FractionAccumulator accumulator = new FractionAccumulator();
+        for (String token : new String(text, StandardCharsets.US_ASCII).split("\n")) {
+            int slash = token.indexOf('/');
+            if (slash < 0) {
+                accumulator.add(Integer.parseInt(token));
+            } else {
+                accumulator.add(new Fraction(Integer.parseInt(token.substring(0, slash)),
+                        Integer.parseInt(token.substring(slash + 1))));
+            }
+        }
+        return accumulator.toExactFraction();
+    }
+
+    @Benchmark
+    public ExactFraction parseReader() throws IOException {
+        try (FractionReader reader = new FractionReader(Channels.newChannel(new ByteArrayInputStream(text)))) {
+            return reader.sum();
+        }
+    }
+
+    @Benchmark
+    public byte[] formatStrings() {
+        StringBuilder builder = new StringBuilder(text.length);
+        for (Fraction fraction : fractions) {
+            builder.append(fraction.toString()).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public byte[] formatWriter() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length);
+        try (FractionWriter writer = new FractionWriter(Channels.newChannel(out))) {
+            for (Fraction fraction : fractions) {
+                writer.write(fraction);
+            }
+        }
+        return out.toByteArray();
+    }
+}
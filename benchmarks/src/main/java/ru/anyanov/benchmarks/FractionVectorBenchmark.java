@@ -0,0 +1,100 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.fraction.ExactFraction;
+import ru.anyanov.fraction.Fraction;
+import ru.anyanov.fraction.FractionVector;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поэлементные сложение и умножение и скалярное произведение: FractionVector
+ * в сравнении с циклом по массивам Fraction. Знаменатели от 1 до 16,
+ * чтобы суммы помещались в long и в int.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FractionVectorBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private Fraction[] left;
+    private Fraction[] right;
+    private FractionVector leftVector;
+    private FractionVector rightVector;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        left = new Fraction[size];
+        right = new Fraction[size];
+        for (int i = 0; i < size; i++) {
+            left[i] = new Fraction(random.nextInt(-1000, 1001), random.nextInt(1, 17));
+            right[i] = new Fraction(random.nextInt(-1000, 1001), random.nextInt(1, 17));
+        }
+        leftVector = FractionVector.of(left);
+        rightVector = FractionVector.of(right);
+    }
+
+    @Benchmark
+    public Fraction[] addObjects() {
+        Fraction[] result = new Fraction[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i].add(right[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public FractionVector addVector() {
+        return leftVector.add(rightVector);
+    }
+
+    @Benchmark
+    public Fraction[] multiplyObjects() {
+        Fraction[] result = new Fraction[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i].multiply(right[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public FractionVector multiplyVector() {
+        return leftVector.multiply(rightVector);
+    }
+
+    @Benchmark
+    public ExactFraction dotObjects() {
+        ExactFraction total = ExactFraction.valueOf(0, 1);
+        for (int i = 0; i < size; i++) {
+            total = total.add(ExactFraction.valueOf(left[i].multiply(right[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public ExactFraction dotVector() {
+        return leftVector.dot(rightVector);
+    }
+
+    @Benchmark
+    public FractionVector prefixSums() {
+        return leftVector.prefixSums();
+    }
+}
@@ -0,0 +1,88 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.geometry.Point;
+import ru.anyanov.geometry.PointBuffer;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетные операции над точками: PointBuffer (координаты в массивах)
+ * в сравнении с таким же циклом по массиву объектов Point.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PointBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private Point[] points;
+    private PointBuffer buffer;
+    private double[] distances;
+    private final Point center = new Point(0.5, 0.5);
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        points = new Point[size];
+        buffer = new PointBuffer(size);
+        for (int i = 0; i < size; i++) {
+            points[i] = new Point(random.nextDouble(), random.nextDouble());
+            buffer.add(points[i]);
+        }
+        distances = new double[size];
+    }
+
+    @Benchmark
+    public double[] distancesBuffer() {
+        return buffer.distancesTo(center, distances);
+    }
+
+    @Benchmark
+    public double[] distancesPoints() {
+        for (int i = 0; i < points.length; i++) {
+            double dx = points[i].getX() - center.getX();
+            double dy = points[i].getY() - center.getY();
+            distances[i] = Math.sqrt(dx * dx + dy * dy);
+        }
+        return distances;
+    }
+
+    @Benchmark
+    public PointBuffer cloneBuffer() {
+        return buffer.clone();
+    }
+
+    @Benchmark
+    public Point[] clonePoints() {
+        Point[] copy = new Point[points.length];
+        for (int i = 0; i < points.length; i++) {
+            copy[i] = points[i].clone();
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public int hashCodes() {
+        int hash = 0;
+        for (Point point : points) {
+            hash += point.hashCode();
+        }
+        return hash;
+    }
+}
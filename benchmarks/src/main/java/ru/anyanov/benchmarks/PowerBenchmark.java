@@ -0,0 +1,83 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.math.MathUtils;
+
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Степени по массивам операндов: пакетные MathUtils.powerExact и powMod
+ * в сравнении с циклом по Math.pow и BigInteger.modPow.
+ * Основания и показатели подобраны так, чтобы степени помещались в long.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PowerBenchmark {
+    private static final long MODULUS = 1_000_000_007L;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private long[] bases;
+    private int[] exponents;
+    private long[] longExponents;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        bases = new long[size];
+        exponents = new int[size];
+        longExponents = new long[size];
+        for (int i = 0; i < size; i++) {
+            bases[i] = random.nextLong(-1000, 1001);
+            exponents[i] = random.nextInt(0, 7);
+            longExponents[i] = random.nextLong(0, MODULUS);
+        }
+    }
+
+    @Benchmark
+    public double[] powerDouble() {
+        double[] results = new double[size];
+        for (int i = 0; i < size; i++) {
+            results[i] = Math.pow(bases[i], exponents[i]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public long[] powerExact() {
+        return MathUtils.powerExact(bases, exponents);
+    }
+
+    @Benchmark
+    public long[] powModBigInteger() {
+        long[] results = new long[size];
+        BigInteger modulus = BigInteger.valueOf(MODULUS);
+        for (int i = 0; i < size; i++) {
+            results[i] = BigInteger.valueOf(bases[i]).modPow(BigInteger.valueOf(longExponents[i]), modulus)
+                    .longValue();
+        }
+        return results;
+    }
+
+    @Benchmark
+    public long[] powMod() {
+        return MathUtils.powMod(bases, longExponents, MODULUS);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.city.City;
+import ru.anyanov.city.RoadGraph;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Добавление дорог через City.addRoad: построение всей сети с нуля
+ * и добавление с удалением одной дороги в уже построенном графе.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoadBenchmark {
+    // Число заранее выбранных пар городов, степень двойки
+    private static final int PAIRS = 4096;
+
+    @Param({"GRID", "RANDOM_GEOMETRIC", "SCALE_FREE"})
+    public SyntheticGraph.Topology topology;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private SyntheticGraph network;
+    private City[] built;
+    private City[] first;
+    private City[] second;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        network = SyntheticGraph.generate(topology, size, 42);
+        built = network.build(new RoadGraph());
+        SplittableRandom random = new SplittableRandom(7);
+        first = new City[PAIRS];
+        second = new City[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            first[i] = built[random.nextInt(built.length)];
+            second[i] = built[random.nextInt(built.length)];
+        }
+    }
+
+    /**
+     * Новый граф с городами сети, но без дорог; создается перед каждым вызовом buildNetwork.
+     */
+    @State(Scope.Thread)
+    public static class EmptyGraph {
+        City[] cities;
+
+        @Setup(Level.Invocation)
+        public void setUp(RoadBenchmark benchmark) {
+            cities = benchmark.network.createCities(new RoadGraph());
+        }
+    }
+
+    /**
+     * Добавляет все дороги сети; одна операция - построение всего графа
+     * (время на одну дорогу - результат, деленный на число дорог сети).
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public City[] buildNetwork(EmptyGraph graph) {
+        City[] cities = graph.cities;
+        for (int i = 0; i < network.getRoadCount(); i++) {
+            cities[network.getFrom(i)].addRoad(cities[network.getTo(i)], network.getCost(i));
+        }
+        return cities;
+    }
+
+    /**
+     * Добавляет дорогу между случайными городами построенного графа и удаляет ее,
+     * поэтому граф между вызовами не растет. В разреженной сети случайная пара
+     * почти никогда не соединена, но если дорога уже была, она будет удалена
+     * и добавлена заново при следующем проходе по парам.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void addAndRemoveRoad() {
+        int index = next++ & (PAIRS - 1);
+        first[index].addRoad(second[index], 10);
+        first[index].removeRoad(second[index]);
+    }
+}
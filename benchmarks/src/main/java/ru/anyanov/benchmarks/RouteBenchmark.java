@@ -0,0 +1,106 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.city.City;
+import ru.anyanov.city.RoadGraph;
+import ru.anyanov.city.Route;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск маршрута между случайными городами синтетической сети.
+ * Кэш маршрутов графа отключен, поэтому измеряется сам поиск, а не попадание в кэш.
+ * Поиск по иерархии сжатия измеряется отдельно в ContractionHierarchyBenchmark.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteBenchmark {
+    // Число заранее подготовленных маршрутов, степень двойки
+    static final int ROUTES = 1024;
+
+    @Param({"GRID", "RANDOM_GEOMETRIC", "SCALE_FREE"})
+    public SyntheticGraph.Topology topology;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"FEWEST_CITIES", "CHEAPEST", "A_STAR"})
+    public Route.Mode mode;
+
+    private Route[] routes;
+
+    @Setup
+    public void setUp() {
+        routes = randomRoutes(topology, size, mode);
+    }
+
+    /**
+     * Строит сеть и ROUTES маршрутов между ее случайными городами.
+     * Снимок графа (и иерархия сжатия) собирается здесь, а не в измерениях.
+     */
+    static Route[] randomRoutes(SyntheticGraph.Topology topology, int size, Route.Mode mode) {
+        RoadGraph graph = new RoadGraph();
+        City[] cities = SyntheticGraph.generate(topology, size, 42).build(graph);
+        graph.getRouteCache().setCapacity(0);
+        if (mode == Route.Mode.CONTRACTION_HIERARCHY) {
+            graph.prepareContractionHierarchy();
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        Route[] routes = new Route[ROUTES];
+        for (int i = 0; i < ROUTES; i++) {
+            routes[i] = new Route(cities[random.nextInt(cities.length)], cities[random.nextInt(cities.length)], mode);
+        }
+        routes[0].getRoute();
+        return routes;
+    }
+
+    /**
+     * Номер следующего маршрута, у каждого потока свой.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        City[] buffer;
+
+        Route next(Route[] routes) {
+            return routes[next++ & (ROUTES - 1)];
+        }
+
+        // Буфер на все города графа маршрута, выделяется один раз
+        City[] buffer(Route route) {
+            if (buffer == null) {
+                buffer = new City[route.getStart().getGraph().size()];
+            }
+            return buffer;
+        }
+    }
+
+    @Benchmark
+    public City[] getRoute(Cursor cursor) {
+        return cursor.next(routes).getRoute();
+    }
+
+    /**
+     * Поиск в заранее выделенный буфер, без массива результата.
+     */
+    @Benchmark
+    public int getRouteIntoBuffer(Cursor cursor) {
+        Route route = cursor.next(routes);
+        return route.getRoute(cursor.buffer(route));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.city.City;
+import ru.anyanov.city.RouteCache;
+import ru.anyanov.city.Route;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена статистики запросов (RouteMetrics): одни и те же запросы
+ * со включенной и выключенной статистикой. Разница средних времен - цена учета
+ * одного запроса. Самые дешевые запросы - попадания в кэш маршрутов (cached = true),
+ * на них доля статистики самая большая. Несколько потоков: -t 4.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteMetricsBenchmark {
+    @Param({"true", "false"})
+    public boolean metrics;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    @Param({"FEWEST_CITIES", "CHEAPEST"})
+    public Route.Mode mode;
+
+    private Route[] routes;
+
+    @Setup
+    public void setUp() {
+        // Маленькая решетка: короткие поиски, на которых цена статистики заметнее всего
+        routes = RouteBenchmark.randomRoutes(SyntheticGraph.Topology.GRID, 1000, mode);
+        if (cached) {
+            // В кэше помещаются все маршруты; заполняем его до измерений
+            routes[0].getStart().getGraph().getRouteCache().setCapacity(RouteCache.DEFAULT_CAPACITY * 4);
+            for (Route route : routes) {
+                route.getRoute();
+            }
+        }
+        routes[0].getStart().getGraph().getMetrics().setEnabled(metrics);
+    }
+
+    @Benchmark
+    public City[] getRoute(RouteBenchmark.Cursor cursor) {
+        return cursor.next(routes).getRoute();
+    }
+}
@@ -0,0 +1,90 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.city.City;
+import ru.anyanov.city.RoadGraph;
+import ru.anyanov.geometry.Point;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск городов по координатам (RoadGraph.getNearestCity, getNearestCities,
+ * getCitiesWithin) в сравнении с перебором всех городов. Города расположены
+ * как в RANDOM_GEOMETRIC: в среднем один город на единицу площади.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpatialBenchmark {
+    // Степень двойки
+    private static final int POINTS = 1024;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private RoadGraph graph;
+    private City[] cities;
+    private Point[] points;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        graph = new RoadGraph();
+        cities = SyntheticGraph.generate(SyntheticGraph.Topology.RANDOM_GEOMETRIC, size, 42).createCities(graph);
+        SplittableRandom random = new SplittableRandom(7);
+        double side = Math.sqrt(size);
+        points = new Point[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            points[i] = new Point(random.nextDouble() * side, random.nextDouble() * side);
+        }
+        // Индекс строится при первом запросе, не в измерении
+        graph.getNearestCity(points[0]);
+    }
+
+    @Benchmark
+    public City nearestCity() {
+        return graph.getNearestCity(points[next++ & (POINTS - 1)]);
+    }
+
+    @Benchmark
+    public List<City> nearestTenCities() {
+        return graph.getNearestCities(points[next++ & (POINTS - 1)], 10);
+    }
+
+    @Benchmark
+    public List<City> citiesWithinRadius() {
+        return graph.getCitiesWithin(points[next++ & (POINTS - 1)], 3);
+    }
+
+    @Benchmark
+    public City nearestCityScan() {
+        Point point = points[next++ & (POINTS - 1)];
+        City nearest = null;
+        double best = Double.POSITIVE_INFINITY;
+        for (City city : cities) {
+            Point location = city.getLocation();
+            double dx = location.getX() - point.getX();
+            double dy = location.getY() - point.getY();
+            if (dx * dx + dy * dy < best) {
+                best = dx * dx + dy * dy;
+                nearest = city;
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.anyanov.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.anyanov.math.MathUtils;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MathUtils.sum для массивов int, long и double в сравнении с простым циклом
+ * и со старым способом через sum(Number...) (только для небольших массивов:
+ * массив из 10 млн Double занимает сотни мегабайт).
+ * На многоядерной машине массивы из 10 млн элементов суммируются параллельно.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SumBenchmark {
+    @Param({"1000", "10000000"})
+    public int size;
+
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+    private Number[] numbers;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        ints = new int[size];
+        longs = new long[size];
+        doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            ints[i] = random.nextInt();
+            longs[i] = ints[i];
+            doubles[i] = random.nextDouble(-1000, 1000);
+        }
+        if (size <= 1000) {
+            numbers = new Number[size];
+            for (int i = 0; i < size; i++) {
+                numbers[i] = doubles[i];
+            }
+        }
+    }
+
+    @Benchmark
+    public double loopDouble() {
+        double total = 0;
+        for (double value : doubles) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double sumDouble() {
+        return MathUtils.sum(doubles);
+    }
+
+    @Benchmark
+    public double sumNumbers() {
+        return numbers == null ? 0 : MathUtils.sum(numbers);
+    }
+
+    @Benchmark
+    public long sumInt() {
+        return MathUtils.sum(ints);
+    }
+
+    @Benchmark
+    public long sumLong() {
+        return MathUtils.sum(longs);
+    }
+}
@@ -0,0 +1,275 @@
+package ru.anyanov.benchmarks;
+
+import ru.anyanov.city.City;
+import ru.anyanov.city.RoadGraph;
+import ru.anyanov.geometry.Point;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Синтетическая сеть дорог заданного размера для бенчмарков.
+ * Сначала генерируется список дорог (from[i] - to[i], стоимость cost[i]) и координаты городов,
+ * а граф строится из него отдельно, поэтому генерация не входит в измерения построения графа.
+ * Одинаковые топология, размер и seed всегда дают одинаковую сеть.
+ */
+public final class SyntheticGraph {
+    /**
+     * Вид сети.
+     */
+    public enum Topology {
+        // Квадратная решетка: каждый город соединен с соседями справа и снизу,
+        // много равноценных путей, большой диаметр графа
+        GRID,
+        // Случайный геометрический граф: города равномерно в квадрате, дороги
+        // между городами ближе радиуса, стоимость растет с длиной дороги (похож на дорожную сеть)
+        RANDOM_GEOMETRIC,
+        // Безмасштабный граф Барабаши-Альберт: новые города присоединяются к уже
+        // популярным, есть города-хабы с очень большой степенью, диаметр маленький.
+        // Координат у городов нет, поэтому A* сводится к Дейкстре
+        SCALE_FREE
+    }
+
+    // Средняя степень города в случайном геометрическом графе
+    private static final double GEOMETRIC_DEGREE = 6;
+    // Число дорог нового города в графе Барабаши-Альберт
+    private static final int SCALE_FREE_EDGES = 3;
+
+    private final Topology topology;
+    private final int size;
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] from;
+    private final int[] to;
+    private final int[] cost;
+    private final int roadCount;
+
+    private SyntheticGraph(Topology topology, int size, double[] xs, double[] ys,
+                           int[] from, int[] to, int[] cost, int roadCount) {
+        this.topology = topology;
+        this.size = size;
+        this.xs = xs;
+        this.ys = ys;
+        this.from = from;
+        this.to = to;
+        this.cost = cost;
+        this.roadCount = roadCount;
+    }
+
+    /**
+     * Генерирует сеть примерно из size городов (решетка округляется до квадрата).
+     */
+    public static SyntheticGraph generate(Topology topology, int size, long seed) {
+        if (topology == null) {
+            throw new IllegalArgumentException("Вид сети не может быть null");
+        }
+        if (size < 2) {
+            throw new IllegalArgumentException("В сети должно быть хотя бы два города");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        switch (topology) {
+            case GRID:
+                return grid(size, random);
+            case RANDOM_GEOMETRIC:
+                return randomGeometric(size, random);
+            default:
+                return scaleFree(size, random);
+        }
+    }
+
+    private static SyntheticGraph grid(int size, SplittableRandom random) {
+        int side = Math.max(2, (int) Math.round(Math.sqrt(size)));
+        int count = side * side;
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        Edges edges = new Edges(2 * count);
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                int id = row * side + column;
+                xs[id] = column;
+                ys[id] = row;
+                // Длина дороги 1, стоимость от 1 до 10
+                if (column + 1 < side) {
+                    edges.add(id, id + 1, 1 + random.nextInt(10));
+                }
+                if (row + 1 < side) {
+                    edges.add(id, id + side, 1 + random.nextInt(10));
+                }
+            }
+        }
+        return edges.toGraph(Topology.GRID, count, xs, ys);
+    }
+
+    /**
+     * Города равномерно в квадрате со стороной sqrt(size) (в среднем один город
+     * на единицу площади), дороги между городами ближе радиуса sqrt(GEOMETRIC_DEGREE / pi).
+     * Соседи ищутся по корзинам со стороной радиуса, поэтому генерация занимает O(size).
+     */
+    private static SyntheticGraph randomGeometric(int size, SplittableRandom random) {
+        double side = Math.sqrt(size);
+        double radius = Math.sqrt(GEOMETRIC_DEGREE / Math.PI);
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        for (int id = 0; id < size; id++) {
+            xs[id] = random.nextDouble() * side;
+            ys[id] = random.nextDouble() * side;
+        }
+
+        int cells = Math.max(1, (int) (side / radius));
+        double cellSize = side / cells;
+        // Города по корзинам в виде CSR: cellStart[c]..cellStart[c + 1] в cellCities
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[size];
+        for (int id = 0; id < size; id++) {
+            cellOf[id] = cell(xs[id], cellSize, cells) * cells + cell(ys[id], cellSize, cells);
+            cellStart[cellOf[id] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] cellCities = new int[size];
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        for (int id = 0; id < size; id++) {
+            cellCities[fill[cellOf[id]]++] = id;
+        }
+
+        Edges edges = new Edges((int) (size * GEOMETRIC_DEGREE / 2 * 1.2));
+        for (int id = 0; id < size; id++) {
+            int cellX = cellOf[id] / cells;
+            int cellY = cellOf[id] % cells;
+            for (int x = Math.max(0, cellX - 1); x <= Math.min(cells - 1, cellX + 1); x++) {
+                for (int y = Math.max(0, cellY - 1); y <= Math.min(cells - 1, cellY + 1); y++) {
+                    int c = x * cells + y;
+                    for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                        int other = cellCities[k];
+                        if (other <= id) {
+                            continue; // Каждая пара рассматривается один раз
+                        }
+                        double dx = xs[id] - xs[other];
+                        double dy = ys[id] - ys[other];
+                        double length = Math.sqrt(dx * dx + dy * dy);
+                        if (length <= radius) {
+                            // Стоимость не меньше длины дороги, с надбавкой до 50%
+                            edges.add(id, other, (int) Math.ceil(length * 10 * (1 + random.nextDouble() / 2)) + 1);
+                        }
+                    }
+                }
+            }
+        }
+        return edges.toGraph(Topology.RANDOM_GEOMETRIC, size, xs, ys);
+    }
+
+    private static int cell(double coordinate, double cellSize, int cells) {
+        return Math.min(cells - 1, (int) (coordinate / cellSize));
+    }
+
+    /**
+     * Граф Барабаши-Альберт: начинается с полного графа из SCALE_FREE_EDGES + 1 городов,
+     * каждый следующий город соединяется с SCALE_FREE_EDGES различными городами,
+     * выбранными с вероятностью, пропорциональной их степени.
+     * Выбор по степени - случайный конец случайной уже добавленной дороги.
+     */
+    private static SyntheticGraph scaleFree(int size, SplittableRandom random) {
+        int initial = Math.min(size, SCALE_FREE_EDGES + 1);
+        Edges edges = new Edges(initial * initial / 2 + (size - initial) * SCALE_FREE_EDGES);
+        for (int first = 0; first < initial; first++) {
+            for (int second = first + 1; second < initial; second++) {
+                edges.add(first, second, 1 + random.nextInt(100));
+            }
+        }
+        int[] chosen = new int[SCALE_FREE_EDGES];
+        for (int id = initial; id < size; id++) {
+            int count = 0;
+            int existing = edges.count;
+            while (count < SCALE_FREE_EDGES) {
+                int edge = random.nextInt(existing);
+                int candidate = random.nextBoolean() ? edges.from[edge] : edges.to[edge];
+                if (!contains(chosen, count, candidate)) {
+                    chosen[count++] = candidate;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                edges.add(id, chosen[i], 1 + random.nextInt(100));
+            }
+        }
+        return edges.toGraph(Topology.SCALE_FREE, size, null, null);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Создает в графе города сети (с координатами, если они есть) без дорог.
+     * Город с идентификатором сети id получает название "c" + id.
+     */
+    public City[] createCities(RoadGraph graph) {
+        City[] cities = new City[size];
+        for (int id = 0; id < size; id++) {
+            cities[id] = xs == null
+                    ? new City("c" + id, graph)
+                    : new City("c" + id, graph, new Point(xs[id], ys[id]));
+        }
+        return cities;
+    }
+
+    /**
+     * Создает в графе города сети и добавляет ее дороги через City.addRoad.
+     */
+    public City[] build(RoadGraph graph) {
+        City[] cities = createCities(graph);
+        for (int i = 0; i < roadCount; i++) {
+            cities[from[i]].addRoad(cities[to[i]], cost[i]);
+        }
+        return cities;
+    }
+
+    public Topology getTopology() { return topology; }
+    public int size() { return size; }
+    public int getRoadCount() { return roadCount; }
+    public int getFrom(int road) { return from[road]; }
+    public int getTo(int road) { return to[road]; }
+    public int getCost(int road) { return cost[road]; }
+
+    @Override
+    public String toString() {
+        return topology + " (" + size + " городов, " + roadCount + " дорог)";
+    }
+
+    // Растущий список дорог
+    private static final class Edges {
+        int[] from;
+        int[] to;
+        int[] cost;
+        int count;
+
+        Edges(int capacity) {
+            capacity = Math.max(capacity, 16);
+            from = new int[capacity];
+            to = new int[capacity];
+            cost = new int[capacity];
+        }
+
+        void add(int first, int second, int roadCost) {
+            if (count == from.length) {
+                int capacity = count * 3 / 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                cost = Arrays.copyOf(cost, capacity);
+            }
+            from[count] = first;
+            to[count] = second;
+            cost[count] = roadCost;
+            count++;
+        }
+
+        SyntheticGraph toGraph(Topology topology, int size, double[] xs, double[] ys) {
+            return new SyntheticGraph(topology, size, xs, ys, from, to, cost, count);
+        }
+    }
+}
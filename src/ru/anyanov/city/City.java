@@ -1,19 +1,59 @@
 package ru.anyanov.city;
 
+import ru.anyanov.geometry.Point;
+
 import java.util.*;
 
+/**
+ * Город графа дорог RoadGraph. Город определяется графом и плотным идентификатором в нем:
+ * каждый вызов конструктора создает новый город, а equals и hashCode сравнивают
+ * граф и идентификатор, поэтому два города с одним названием никогда не равны.
+ *
+ * Города, созданные конструкторами без графа, попадают в граф по умолчанию
+ * RoadGraph.getDefault(). Там, как и раньше, допускаются одинаковые названия, но граф
+ * хранит ссылки на все свои города, и они не освобождаются сборщиком мусора
+ * до конца работы программы. Временные наборы городов создавайте в своем RoadGraph;
+ * в нем названия уникальны, а getOrCreateCity(name) возвращает город по названию.
+ */
 public final class City {
     private final String name;
-    private final Map<City, Integer> roads;
+    private final RoadGraph graph;
+    private final int id;
 
+    /**
+     * Создает новый город в графе по умолчанию RoadGraph.getDefault(), как и раньше,
+     * без проверки уникальности названия. Город не освобождается до конца работы программы.
+     */
     public City(String name) {
+        this(name, RoadGraph.getDefault());
+    }
+
+    /**
+     * Создает город в указанном графе.
+     * Название города уникально в пределах графа (кроме графа по умолчанию):
+     * повторное создание города с тем же названием приводит к IllegalArgumentException.
+     */
+    public City(String name, RoadGraph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Граф дорог не может быть null");
+        }
         this.name = name;
-        this.roads = new HashMap<>();
+        this.graph = graph;
+        this.id = graph.register(this);
+    }
+
+    public City(String name, Point location) {
+        this(name);
+        setLocation(location);
+    }
+
+    public City(String name, RoadGraph graph, Point location) {
+        this(name, graph);
+        setLocation(location);
     }
 
     public City(String name, Map<City, Integer> initialRoads) {
-        this.name = name;
-        this.roads = new HashMap<>();
+        this(name);
         if (initialRoads != null) {
             for (Map.Entry<City, Integer> entry : initialRoads.entrySet()) {
                 addRoad(entry.getKey(), entry.getValue());
@@ -22,17 +62,22 @@ public final class City {
     }
 
     public void addRoad(City city, int cost) {
-        // Гарантируем, что между двумя городами только одна дорога
-        if (city != this && !roads.containsKey(city)) {
-            roads.put(city, cost);
-            city.roads.put(this, cost); // Дорога двусторонняя
+        checkSameGraph(city);
+        if (cost < 0) {
+            throw new IllegalArgumentException("Стоимость дороги не может быть отрицательной");
         }
+        // Гарантируем, что между двумя городами только одна дорога (проверяется в графе)
+        graph.addRoad(id, city.id, cost); // Дорога двусторонняя
     }
 
     public void removeRoad(City city) {
-        if (roads.containsKey(city)) {
-            roads.remove(city);
-            city.roads.remove(this);
+        checkSameGraph(city);
+        graph.removeRoad(id, city.id);
+    }
+
+    private void checkSameGraph(City city) {
+        if (city.graph != graph) {
+            throw new IllegalArgumentException("Города " + name + " и " + city.name + " принадлежат разным графам");
         }
     }
 
@@ -40,28 +85,64 @@ public final class City {
         return name;
     }
 
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    // Плотный идентификатор города внутри его графа
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Возвращает копию координат города или null, если координаты не заданы.
+     */
+    public Point getLocation() {
+        return graph.hasLocation(id) ? new Point(graph.getX(id), graph.getY(id)) : null;
+    }
+
+    /**
+     * Задает координаты города; null удаляет их.
+     * Координаты используются как эвристика в режиме Route.Mode.A_STAR.
+     */
+    public void setLocation(Point location) {
+        if (location == null) {
+            graph.setLocation(id, Double.NaN, Double.NaN);
+        } else {
+            graph.setLocation(id, location.getX(), location.getY());
+        }
+    }
+
     public Map<City, Integer> getRoads() {
-        return new HashMap<>(roads);
+        RoadGraph.Adjacency adjacency = graph.adjacency(id);
+        Map<City, Integer> roads = new HashMap<>();
+        for (int i = 0; i < adjacency.degree; i++) {
+            roads.put(graph.getCity(adjacency.targets[i]), adjacency.costs[i]);
+        }
+        return roads;
     }
 
     // Метод для получения имен соседних городов
     public Set<String> getNeighborNames() {
+        RoadGraph.Adjacency adjacency = graph.adjacency(id);
         Set<String> neighborNames = new HashSet<>();
-        for (City neighbor : roads.keySet()) {
-            neighborNames.add(neighbor.name);
+        for (int i = 0; i < adjacency.degree; i++) {
+            neighborNames.add(graph.getCity(adjacency.targets[i]).name);
         }
         return neighborNames;
     }
 
     // Метод для красивого вывода информации о городе
     public String getRoadsInfo() {
-        if (roads.isEmpty()) {
+        RoadGraph.Adjacency adjacency = graph.adjacency(id);
+        if (adjacency.degree == 0) {
             return "нет дорог";
         }
 
         List<String> roadInfo = new ArrayList<>();
-        for (Map.Entry<City, Integer> road : roads.entrySet()) {
-            roadInfo.add(road.getKey().name + " (стоимость: " + road.getValue() + ")");
+        for (int i = 0; i < adjacency.degree; i++) {
+            City neighbor = graph.getCity(adjacency.targets[i]);
+            roadInfo.add(neighbor.name + " (стоимость: " + adjacency.costs[i] + ")");
         }
         return String.join(", ", roadInfo);
     }
@@ -71,19 +152,31 @@ public final class City {
         return name;
     }
 
+    /**
+     * Сравнивает города по структуре графа: одинаковые названия
+     * и одинаковые наборы соседних городов (без рекурсии).
+     * Сложность: O(deg)
+     */
+    public boolean hasSameRoads(City other) {
+        if (other == null) return false;
+        if (this == other) return true;
+        return Objects.equals(name, other.name) &&
+                Objects.equals(this.getNeighborNames(), other.getNeighborNames());
+    }
+
+    // Город однозначно определяется графом и идентификатором в нем:
+    // идентификатор не меняется при изменении дорог,
+    // поэтому город можно безопасно хранить в HashMap/HashSet
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
+        if (!(obj instanceof City)) return false;
         City other = (City) obj;
-
-        // Сравниваем по именам и наборам соседей (без рекурсии)
-        return Objects.equals(name, other.name) &&
-                Objects.equals(this.getNeighborNames(), other.getNeighborNames());
+        return graph == other.graph && id == other.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, getNeighborNames());
+        return 31 * System.identityHashCode(graph) + id;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package ru.anyanov.city;
+
+/**
+ * Неизменяемый снимок графа в формате CSR (compressed sparse row),
+ * по которому выполняются все поиски маршрутов.
+ * Соседи города id лежат в targets[offsets[id]..offsets[id + 1]),
+ * стоимости соответствующих дорог - в costs с теми же индексами.
+ * Снимок не меняется после создания, поэтому его можно читать из любых потоков без блокировок.
+ */
+final class CompiledGraph {
+    static final CompiledGraph EMPTY = new CompiledGraph(-1, -1, 0, new int[1], new int[0], new int[0],
+            new double[0], new double[0], false);
+
+    // Версия графа (дороги и координаты) и версия только дорог, для которых собран снимок
+    final long version;
+    final long roadVersion;
+    final int size;
+    final int[] offsets;
+    final int[] targets;
+    final int[] costs;
+    final double[] xs;
+    final double[] ys;
+    final double heuristicScale;
+
+    CompiledGraph(long version, long roadVersion, int size, int[] offsets, int[] targets, int[] costs,
+                  double[] xs, double[] ys, boolean allLocated) {
+        this.version = version;
+        this.roadVersion = roadVersion;
+        this.size = size;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+        this.xs = xs;
+        this.ys = ys;
+        this.heuristicScale = allLocated ? computeHeuristicScale() : 0;
+    }
+
+    /**
+     * Собирает снимок из списков смежности первых size городов.
+     * Сложность: O(V + E)
+     */
+    static CompiledGraph build(long version, long roadVersion, int size, RoadGraph.Adjacency[] adjacency,
+                               double[] xs, double[] ys, boolean allLocated) {
+        int[] offsets = new int[size + 1];
+        for (int id = 0; id < size; id++) {
+            offsets[id + 1] = offsets[id] + adjacency[id].degree;
+        }
+        int edgeCount = offsets[size];
+        int[] targets = new int[edgeCount];
+        int[] costs = new int[edgeCount];
+        for (int id = 0; id < size; id++) {
+            RoadGraph.Adjacency roads = adjacency[id];
+            System.arraycopy(roads.targets, 0, targets, offsets[id], roads.degree);
+            System.arraycopy(roads.costs, 0, costs, offsets[id], roads.degree);
+        }
+        return new CompiledGraph(version, roadVersion, size, offsets, targets, costs, xs, ys, allLocated);
+    }
+
+    /**
+     * Коэффициент, переводящий евклидово расстояние в нижнюю оценку стоимости пути:
+     * минимальное по всем дорогам отношение стоимости к длине дороги.
+     * Для любой дороги scale * |uv| <= cost(u, v), поэтому эвристика
+     * scale * |v, target| допустима и монотонна для A*.
+     * Вызывается, только если координаты есть у всех городов; иначе A* сводится к Дейкстре.
+     */
+    private double computeHeuristicScale() {
+        if (targets.length == 0) {
+            return 0;
+        }
+        double scale = Double.POSITIVE_INFINITY;
+        for (int id = 0; id < size; id++) {
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                double length = distance(id, targets[edge]);
+                if (length > 0) {
+                    scale = Math.min(scale, costs[edge] / length);
+                }
+            }
+        }
+        // Небольшой запас на погрешность вычислений с плавающей точкой
+        return scale == Double.POSITIVE_INFINITY ? 0 : scale * (1 - 1e-9);
+    }
+
+    /**
+     * Евклидово расстояние между городами по их координатам.
+     */
+    double distance(int from, int to) {
+        double dx = xs[from] - xs[to];
+        double dy = ys[from] - ys[to];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,246 @@
+package ru.anyanov.city;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Индекс компонент связности графа дорог на системе непересекающихся множеств
+ * (union-find с объединением по размеру и сжатием путей).
+ *
+ * Добавление дороги объединяет компоненты ее концов за почти O(1),
+ * а удаление дороги только помечает индекс устаревшим: компонента могла распасться,
+ * и индекс пересобирается целиком при следующем запросе.
+ * Устаревший индекс по-прежнему верно отвечает "не связаны": он лишь может считать
+ * связанными города, путь между которыми пропал. Поэтому запросы не ждут пересборки.
+ * Проверка связности читает массив предков без блокировок и без сжатия путей;
+ * изменения индекса выполняются под его монитором.
+ */
+final class ConnectivityIndex {
+    // Предок города в лесе множеств; корень ссылается сам на себя
+    private volatile AtomicIntegerArray parents = new AtomicIntegerArray(16);
+    // Размер компоненты, действителен только для корней
+    private int[] sizes = new int[16];
+    private int cityCount;
+    private int componentCount;
+    private volatile boolean stale;
+    // Число удалений дорог: если оно изменилось за время пересборки, индекс остается устаревшим
+    private long removals;
+
+    // Пересборку выполняет один поток; монитор индекса она берет только для публикации
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Дороги, добавленные во время пересборки (пары концов), пока logging
+    private int[] log = new int[16];
+    private int logSize;
+    private boolean logging;
+
+    /**
+     * Добавляет новый город отдельной компонентой.
+     */
+    synchronized void add(int id) {
+        if (id >= parents.length()) {
+            int capacity = Math.max(id + 1, parents.length() * 2);
+            AtomicIntegerArray grown = new AtomicIntegerArray(capacity);
+            for (int i = 0; i < cityCount; i++) {
+                grown.set(i, parents.get(i));
+            }
+            parents = grown;
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        parents.set(id, id);
+        sizes[id] = 1;
+        cityCount = id + 1;
+        componentCount++;
+    }
+
+    /**
+     * Объединяет компоненты концов новой дороги.
+     */
+    synchronized void union(int from, int to) {
+        if (logging) {
+            if (logSize == log.length) {
+                log = Arrays.copyOf(log, logSize * 2);
+            }
+            log[logSize++] = from;
+            log[logSize++] = to;
+        }
+        int first = compress(from);
+        int second = compress(to);
+        if (first == second) {
+            return;
+        }
+        // Меньшее дерево подвешивается к большему, поэтому глубина деревьев O(log n)
+        if (sizes[first] < sizes[second]) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        parents.set(second, first);
+        sizes[first] += sizes[second];
+        componentCount--;
+    }
+
+    /**
+     * Помечает индекс устаревшим после удаления дороги.
+     */
+    synchronized void invalidate() {
+        stale = true;
+        removals++;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Пересобирает устаревший индекс, если его не пересобирает другой поток;
+     * иначе сразу возвращается, и запрос отвечает по устаревшему индексу.
+     */
+    void tryRebuild(RoadGraph graph) {
+        if (rebuildLock.tryLock()) {
+            try {
+                rebuildLocked(graph);
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Пересобирает устаревший индекс, при необходимости дожидаясь пересборки в другом потоке.
+     */
+    void rebuild(RoadGraph graph) {
+        rebuildLock.lock();
+        try {
+            rebuildLocked(graph);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Новый лес строится по спискам смежности графа без блокировок графа,
+     * поэтому писатели и читатели во время пересборки не ждут. Дороги, добавленные
+     * за это время, записываются в журнал и объединяются при публикации под монитором;
+     * если за это время дороги удалялись, индекс остается помеченным как устаревший.
+     * Сложность: O(V + E)
+     */
+    private void rebuildLocked(RoadGraph graph) {
+        if (!stale) {
+            return;
+        }
+        long startRemovals;
+        synchronized (this) {
+            logging = true;
+            logSize = 0;
+            startRemovals = removals;
+        }
+        // Дороги, объединенные до включения журнала, должны быть видны в списках смежности
+        graph.awaitRoadWriters();
+        int count = graph.size();
+
+        int[] roots = new int[count];
+        int[] newSizes = new int[count];
+        for (int id = 0; id < count; id++) {
+            roots[id] = id;
+            newSizes[id] = 1;
+        }
+        int components = count;
+        for (int id = 0; id < count; id++) {
+            RoadGraph.Adjacency roads = graph.adjacency(id);
+            for (int i = 0; i < roads.degree; i++) {
+                // Каждая дорога записана в обе стороны, достаточно одной.
+                // Дороги к городам, созданным после начала пересборки, есть в журнале
+                int target = roads.targets[i];
+                if (target > id && target < count && link(roots, newSizes, id, target)) {
+                    components--;
+                }
+            }
+        }
+
+        synchronized (this) {
+            int capacity = Math.max(cityCount, parents.length());
+            if (capacity > roots.length) {
+                roots = Arrays.copyOf(roots, capacity);
+                newSizes = Arrays.copyOf(newSizes, capacity);
+            }
+            for (int id = count; id < cityCount; id++) {
+                roots[id] = id;
+                newSizes[id] = 1;
+                components++;
+            }
+            for (int i = 0; i < logSize; i += 2) {
+                if (link(roots, newSizes, log[i], log[i + 1])) {
+                    components--;
+                }
+            }
+            parents = new AtomicIntegerArray(roots);
+            sizes = newSizes;
+            componentCount = components;
+            logging = false;
+            logSize = 0;
+            stale = removals != startRemovals;
+        }
+    }
+
+    // Объединяет компоненты; меньшее дерево подвешивается к большему
+    private static boolean link(int[] roots, int[] sizes, int from, int to) {
+        int first = find(roots, from);
+        int second = find(roots, to);
+        if (first == second) {
+            return false;
+        }
+        if (sizes[first] < sizes[second]) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        roots[second] = first;
+        sizes[first] += sizes[second];
+        return true;
+    }
+
+    private static int find(int[] roots, int id) {
+        while (roots[id] != id) {
+            roots[id] = roots[roots[id]];
+            id = roots[id];
+        }
+        return id;
+    }
+
+    /**
+     * true, если города в одной компоненте. Не берет блокировок.
+     * Сложность: O(log n)
+     */
+    boolean connected(int first, int second) {
+        AtomicIntegerArray current = parents;
+        return root(current, first) == root(current, second);
+    }
+
+    synchronized int getComponentCount() {
+        return componentCount;
+    }
+
+    synchronized int getComponentSize(int id) {
+        return sizes[compress(id)];
+    }
+
+    private static int root(AtomicIntegerArray parents, int id) {
+        int parent;
+        while ((parent = parents.get(id)) != id) {
+            id = parent;
+        }
+        return id;
+    }
+
+    // Поиск корня со сжатием пути (делением пополам), только под монитором
+    private int compress(int id) {
+        int parent;
+        while ((parent = parents.get(id)) != id) {
+            int grandparent = parents.get(parent);
+            parents.set(id, grandparent);
+            id = grandparent;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,466 @@
+package ru.anyanov.city;
+
+import java.util.Arrays;
+
+/**
+ * Иерархия сжатия (contraction hierarchy) для быстрого поиска самого дешевого пути.
+ *
+ * При построении города по очереди "сжимаются": город удаляется из графа,
+ * а между его соседями добавляются дороги-сокращения (shortcut), если без него
+ * кратчайший путь между ними удлинился бы. Порядок сжатия задает ранг города.
+ * После построения остаются только дороги от города к городам с большим рангом,
+ * и запрос - это двунаправленный Дейкстра, который идет только "вверх" по рангам
+ * и просматривает лишь небольшую часть графа.
+ *
+ * Иерархия строится по снимку графа и не отслеживает его изменения:
+ * RoadGraph перестраивает ее только в prepareContractionHierarchy(),
+ * а до этого запросы после изменения дорог идут без иерархии.
+ *
+ * Стоимости хранятся в long: сокращение заменяет цепочку дорог,
+ * и сумма стоимостей int может не поместиться в int.
+ */
+final class ContractionHierarchy {
+    // Ограничение поиска свидетелей: сколько городов можно извлечь из очереди.
+    // При оценке приоритета достаточно грубого поиска, лишние сокращения лишь увеличат приоритет
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+    private static final int NO_MIDDLE = -1;
+
+    // Версия дорог графа (RoadGraph.roadVersion): координаты городов иерархии не нужны
+    private final long roadVersion;
+    private final int size;
+    private final int[] rank;
+
+    // Дороги вверх по рангам в формате CSR; middle - сжатый город сокращения или NO_MIDDLE
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final long[] upCosts;
+    private final int[] upMiddles;
+
+    private ContractionHierarchy(long roadVersion, int size, int[] rank,
+                                 int[] upOffsets, int[] upTargets, long[] upCosts, int[] upMiddles) {
+        this.roadVersion = roadVersion;
+        this.size = size;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upCosts = upCosts;
+        this.upMiddles = upMiddles;
+    }
+
+    long getRoadVersion() {
+        return roadVersion;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Число дорог вверх по рангам, включая сокращения.
+     */
+    int getEdgeCount() {
+        return upTargets.length;
+    }
+
+    /**
+     * Строит иерархию по снимку графа.
+     */
+    static ContractionHierarchy build(CompiledGraph graph) {
+        return new Builder(graph).build(graph.roadVersion);
+    }
+
+    /**
+     * Записывает в context.path самый дешевый путь от source до target.
+     * @return длина пути или 0, если пути нет
+     */
+    int find(RouteSearchContext context, int source, int target) {
+        int stamp = context.stamp;
+        int[] forwardStamp = context.forwardStamp;
+        int[] backwardStamp = context.backwardStamp;
+        int[] forwardParent = context.forwardParent;
+        int[] backwardParent = context.backwardParent;
+        long[] forwardDistance = context.forwardDistance;
+        long[] backwardDistance = context.backwardDistance;
+        IndexedMinHeap forwardHeap = context.forwardHeap;
+        IndexedMinHeap backwardHeap = context.backwardHeap;
+
+        forwardStamp[source] = stamp;
+        forwardDistance[source] = 0;
+        forwardParent[source] = source;
+        backwardStamp[target] = stamp;
+        backwardDistance[target] = 0;
+        backwardParent[target] = target;
+        forwardHeap.push(source, 0);
+        backwardHeap.push(target, 0);
+
+        long best = Long.MAX_VALUE;
+        int meet = -1;
+        int expanded = 0;
+        long relaxed = 0;
+
+        while (true) {
+            boolean forwardActive = !forwardHeap.isEmpty() && forwardHeap.peekKey() < best;
+            boolean backwardActive = !backwardHeap.isEmpty() && backwardHeap.peekKey() < best;
+            if (!forwardActive && !backwardActive) {
+                break;
+            }
+            boolean forward = forwardActive
+                    && (!backwardActive || forwardHeap.peekKey() <= backwardHeap.peekKey());
+            IndexedMinHeap heap = forward ? forwardHeap : backwardHeap;
+            int[] seen = forward ? forwardStamp : backwardStamp;
+            int[] oppositeSeen = forward ? backwardStamp : forwardStamp;
+            int[] parent = forward ? forwardParent : backwardParent;
+            long[] distance = forward ? forwardDistance : backwardDistance;
+            long[] opposite = forward ? backwardDistance : forwardDistance;
+
+            int current = heap.poll();
+            long currentDistance = distance[current];
+            if (oppositeSeen[current] == stamp && currentDistance + opposite[current] < best) {
+                best = currentDistance + opposite[current];
+                meet = current;
+            }
+
+            expanded++;
+            relaxed += upOffsets[current + 1] - upOffsets[current];
+            for (int edge = upOffsets[current]; edge < upOffsets[current + 1]; edge++) {
+                int neighbor = upTargets[edge];
+                long candidate = currentDistance + upCosts[edge];
+                if (seen[neighbor] != stamp || candidate < distance[neighbor]) {
+                    seen[neighbor] = stamp;
+                    distance[neighbor] = candidate;
+                    parent[neighbor] = current;
+                    heap.push(neighbor, candidate);
+                }
+            }
+        }
+
+        context.expanded = expanded;
+        context.relaxed = relaxed;
+        if (meet == -1) {
+            return 0;
+        }
+        return unpack(context, source, target, meet);
+    }
+
+    /**
+     * Восстанавливает в context.path путь в исходном графе, раскрывая сокращения.
+     * Очереди контекста служат стеками: в пути и в стеках не больше городов, чем в графе.
+     */
+    private int unpack(RouteSearchContext context, int source, int target, int meet) {
+        int[] forwardParent = context.forwardParent;
+        int[] backwardParent = context.backwardParent;
+        int[] path = context.path;
+        int[] pending = context.backwardQueue;
+
+        // Участок source -> meet: идем от meet назад и раскрываем дороги в обратном порядке
+        int[] upward = context.forwardQueue;
+        int upwardCount = 0;
+        for (int current = meet; current != source; current = forwardParent[current]) {
+            upward[upwardCount++] = current;
+        }
+        int length = 0;
+        path[length++] = source;
+        int previous = source;
+        while (upwardCount > 0) {
+            int next = upward[--upwardCount];
+            length = appendEdge(previous, next, path, length, pending);
+            previous = next;
+        }
+
+        // Участок meet -> target
+        for (int current = meet; current != target; current = backwardParent[current]) {
+            length = appendEdge(current, backwardParent[current], path, length, pending);
+        }
+        return length;
+    }
+
+    // Добавляет в path города дороги from -> to (без from), раскрывая сокращения через стек;
+    // возвращает новую длину пути
+    private int appendEdge(int from, int to, int[] path, int length, int[] pending) {
+        int pendingCount = 0;
+        pending[pendingCount++] = to;
+        int current = from;
+        while (pendingCount > 0) {
+            int next = pending[pendingCount - 1];
+            int middle = middleOf(current, next);
+            if (middle == NO_MIDDLE) {
+                path[length++] = next;
+                current = next;
+                pendingCount--;
+            } else {
+                pending[pendingCount++] = middle;
+            }
+        }
+        return length;
+    }
+
+    // Дорога между двумя городами хранится у города с меньшим рангом
+    private int middleOf(int a, int b) {
+        int lower = rank[a] < rank[b] ? a : b;
+        int upper = lower == a ? b : a;
+        for (int edge = upOffsets[lower]; edge < upOffsets[lower + 1]; edge++) {
+            if (upTargets[edge] == upper) {
+                return upMiddles[edge];
+            }
+        }
+        throw new IllegalStateException("В иерархии нет дороги между " + a + " и " + b);
+    }
+
+    /**
+     * Построение иерархии: сжатие городов в порядке ленивой очереди приоритетов.
+     * Приоритет города - разность числа добавляемых сокращений и числа его дорог
+     * плюс число уже сжатых соседей (чтобы сжатие шло равномерно по графу).
+     */
+    private static final class Builder {
+        private final int size;
+        // Оставшийся граф вместе с сокращениями, каждая дорога хранится в обе стороны
+        private final int[][] neighbors;
+        private final long[][] costs;
+        private final int[][] middles;
+        private final int[] degrees;
+        private final int[] deletedNeighbors;
+        private final int[] rank;
+
+        // Дороги вверх, накапливаемые по мере сжатия
+        private final int[][] upTargets;
+        private final long[][] upCosts;
+        private final int[][] upMiddles;
+
+        // Состояние поиска свидетелей
+        private final long[] witnessDistance;
+        private final int[] witnessTouched;
+        private int witnessTouchedCount;
+        private final IndexedMinHeap witnessHeap;
+        // Отметки целей текущего поиска: witnessTarget[id] == witnessStamp
+        private final int[] witnessTarget;
+        private int witnessStamp;
+
+        Builder(CompiledGraph graph) {
+            size = graph.size;
+            int[] offsets = graph.offsets;
+            int[] targets = graph.targets;
+            int[] graphCosts = graph.costs;
+
+            neighbors = new int[size][];
+            costs = new long[size][];
+            middles = new int[size][];
+            degrees = new int[size];
+            for (int id = 0; id < size; id++) {
+                int degree = offsets[id + 1] - offsets[id];
+                neighbors[id] = Arrays.copyOfRange(targets, offsets[id], offsets[id + 1]);
+                costs[id] = new long[degree];
+                for (int i = 0; i < degree; i++) {
+                    costs[id][i] = graphCosts[offsets[id] + i];
+                }
+                middles[id] = new int[degree];
+                Arrays.fill(middles[id], NO_MIDDLE);
+                degrees[id] = degree;
+            }
+            deletedNeighbors = new int[size];
+            rank = new int[size];
+            upTargets = new int[size][];
+            upCosts = new long[size][];
+            upMiddles = new int[size][];
+
+            witnessDistance = new long[size];
+            Arrays.fill(witnessDistance, Long.MAX_VALUE);
+            witnessTouched = new int[size];
+            witnessHeap = new IndexedMinHeap(size);
+            witnessTarget = new int[size];
+        }
+
+        ContractionHierarchy build(long roadVersion) {
+            IndexedMinHeap queue = new IndexedMinHeap(size);
+            for (int id = 0; id < size; id++) {
+                queue.push(id, priority(id));
+            }
+
+            int nextRank = 0;
+            while (!queue.isEmpty()) {
+                int id = queue.poll();
+                // Ленивое обновление: приоритет мог вырасти после сжатия соседей
+                long current = priority(id);
+                if (!queue.isEmpty() && current > queue.peekKey()) {
+                    queue.push(id, current);
+                    continue;
+                }
+
+                rank[id] = nextRank++;
+                int[] formerNeighbors = Arrays.copyOf(neighbors[id], degrees[id]);
+                contract(id, false);
+                for (int neighbor : formerNeighbors) {
+                    deletedNeighbors[neighbor]++;
+                    queue.update(neighbor, priority(neighbor));
+                }
+            }
+
+            // Собираем дороги вверх в CSR
+            int[] offsets = new int[size + 1];
+            for (int id = 0; id < size; id++) {
+                offsets[id + 1] = offsets[id] + upTargets[id].length;
+            }
+            int edgeCount = offsets[size];
+            int[] flatTargets = new int[edgeCount];
+            long[] flatCosts = new long[edgeCount];
+            int[] flatMiddles = new int[edgeCount];
+            for (int id = 0; id < size; id++) {
+                System.arraycopy(upTargets[id], 0, flatTargets, offsets[id], upTargets[id].length);
+                System.arraycopy(upCosts[id], 0, flatCosts, offsets[id], upCosts[id].length);
+                System.arraycopy(upMiddles[id], 0, flatMiddles, offsets[id], upMiddles[id].length);
+            }
+            return new ContractionHierarchy(roadVersion, size, rank, offsets, flatTargets, flatCosts, flatMiddles);
+        }
+
+        private long priority(int id) {
+            int shortcuts = contract(id, true);
+            return 2L * (shortcuts - degrees[id]) + deletedNeighbors[id];
+        }
+
+        /**
+         * Сжимает город id (или только считает сокращения, если simulate).
+         * @return число добавленных (или необходимых) сокращений
+         */
+        private int contract(int id, boolean simulate) {
+            int degree = degrees[id];
+
+            // Копии нужны, так как добавление сокращений меняет массивы соседей
+            int[] ends = Arrays.copyOf(neighbors[id], degree);
+            long[] endCosts = Arrays.copyOf(costs[id], degree);
+            // suffixMax[i] - максимальная стоимость дороги к соседям с индексами >= i
+            long[] suffixMax = new long[degree + 1];
+            for (int i = degree - 1; i >= 0; i--) {
+                suffixMax[i] = Math.max(suffixMax[i + 1], endCosts[i]);
+            }
+
+            int shortcuts = 0;
+            for (int i = 0; i + 1 < degree; i++) {
+                int from = ends[i];
+                long limit = endCosts[i] + suffixMax[i + 1];
+                witnessSearch(from, id, limit, ends, i + 1, degree,
+                        simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                for (int j = i + 1; j < degree; j++) {
+                    int to = ends[j];
+                    long viaCost = endCosts[i] + endCosts[j];
+                    if (witnessDistance[to] > viaCost) {
+                        shortcuts++;
+                        if (!simulate) {
+                            addOrImprove(from, to, viaCost, id);
+                        }
+                    }
+                }
+                resetWitness();
+            }
+
+            if (!simulate) {
+                // Все оставшиеся соседи имеют больший ранг: их дороги становятся дорогами вверх
+                upTargets[id] = Arrays.copyOf(neighbors[id], degrees[id]);
+                upCosts[id] = Arrays.copyOf(costs[id], degrees[id]);
+                upMiddles[id] = Arrays.copyOf(middles[id], degrees[id]);
+                for (int i = 0; i < degrees[id]; i++) {
+                    removeEdge(neighbors[id][i], id);
+                }
+                degrees[id] = 0;
+            }
+            return shortcuts;
+        }
+
+        // Дейкстра от from без города excluded, не дальше limit и с ограничением числа шагов
+        // Останавливается раньше, когда извлечены все цели ends[targetsFrom..targetsTo)
+        private void witnessSearch(int from, int excluded, long limit,
+                                   int[] ends, int targetsFrom, int targetsTo, int settleLimit) {
+            witnessStamp++;
+            int remaining = 0;
+            for (int i = targetsFrom; i < targetsTo; i++) {
+                if (witnessTarget[ends[i]] != witnessStamp) {
+                    witnessTarget[ends[i]] = witnessStamp;
+                    remaining++;
+                }
+            }
+
+            witnessDistance[from] = 0;
+            witnessTouched[witnessTouchedCount++] = from;
+            witnessHeap.push(from, 0);
+            int settled = 0;
+
+            while (!witnessHeap.isEmpty() && witnessHeap.peekKey() <= limit && settled < settleLimit) {
+                int current = witnessHeap.poll();
+                settled++;
+                if (witnessTarget[current] == witnessStamp && --remaining == 0) {
+                    break;
+                }
+                long currentDistance = witnessDistance[current];
+                for (int i = 0; i < degrees[current]; i++) {
+                    int neighbor = neighbors[current][i];
+                    if (neighbor == excluded) {
+                        continue;
+                    }
+                    long candidate = currentDistance + costs[current][i];
+                    if (candidate < witnessDistance[neighbor]) {
+                        if (witnessDistance[neighbor] == Long.MAX_VALUE) {
+                            witnessTouched[witnessTouchedCount++] = neighbor;
+                        }
+                        witnessDistance[neighbor] = candidate;
+                        witnessHeap.push(neighbor, candidate);
+                    }
+                }
+            }
+        }
+
+        private void resetWitness() {
+            for (int i = 0; i < witnessTouchedCount; i++) {
+                witnessDistance[witnessTouched[i]] = Long.MAX_VALUE;
+            }
+            witnessTouchedCount = 0;
+            witnessHeap.clear();
+        }
+
+        private void addOrImprove(int from, int to, long cost, int middle) {
+            int index = indexOf(from, to);
+            if (index >= 0) {
+                if (cost < costs[from][index]) {
+                    costs[from][index] = cost;
+                    middles[from][index] = middle;
+                    int back = indexOf(to, from);
+                    costs[to][back] = cost;
+                    middles[to][back] = middle;
+                }
+                return;
+            }
+            append(from, to, cost, middle);
+            append(to, from, cost, middle);
+        }
+
+        private int indexOf(int from, int to) {
+            for (int i = 0; i < degrees[from]; i++) {
+                if (neighbors[from][i] == to) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void append(int from, int to, long cost, int middle) {
+            int degree = degrees[from];
+            if (degree == neighbors[from].length) {
+                int capacity = Math.max(4, degree * 2);
+                neighbors[from] = Arrays.copyOf(neighbors[from], capacity);
+                costs[from] = Arrays.copyOf(costs[from], capacity);
+                middles[from] = Arrays.copyOf(middles[from], capacity);
+            }
+            neighbors[from][degree] = to;
+            costs[from][degree] = cost;
+            middles[from][degree] = middle;
+            degrees[from] = degree + 1;
+        }
+
+        // Удаление перестановкой последнего элемента: порядок соседей не важен
+        private void removeEdge(int from, int to) {
+            int index = indexOf(from, to);
+            int last = --degrees[from];
+            neighbors[from][index] = neighbors[from][last];
+            costs[from][index] = costs[from][last];
+            middles[from][index] = middles[from][last];
+        }
+    }
+}
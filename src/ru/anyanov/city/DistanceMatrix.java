@@ -0,0 +1,182 @@
+package ru.anyanov.city;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Таблица расстояний между набором городов-источников и набором городов-целей.
+ * Для каждого источника выполняется один поиск по всему графу (BFS для числа
+ * дорог и Дейкстра для стоимости), источники обрабатываются параллельно в ForkJoinPool.
+ * Результаты хранятся в плоских массивах по строкам: элемент [row, column]
+ * находится по индексу row * getColumnCount() + column.
+ */
+public final class DistanceMatrix {
+    // Значение для недостижимых пар городов
+    public static final int UNREACHABLE = -1;
+
+    private final List<City> sources;
+    private final List<City> targets;
+    private final int[] hops;
+    private final long[] costs;
+
+    private DistanceMatrix(List<City> sources, List<City> targets) {
+        this.sources = sources;
+        this.targets = targets;
+        this.hops = new int[sources.size() * targets.size()];
+        this.costs = new long[sources.size() * targets.size()];
+    }
+
+    /**
+     * Вычисляет таблицу в общем ForkJoinPool.
+     */
+    public static DistanceMatrix compute(Collection<City> sources, Collection<City> targets) {
+        return compute(sources, targets, ForkJoinPool.commonPool());
+    }
+
+    public static DistanceMatrix compute(Collection<City> sources, Collection<City> targets, ForkJoinPool pool) {
+        if (sources == null || targets == null || pool == null) {
+            throw new IllegalArgumentException("Наборы городов и пул потоков не могут быть null");
+        }
+        DistanceMatrix matrix = new DistanceMatrix(
+                Collections.unmodifiableList(new ArrayList<>(sources)),
+                Collections.unmodifiableList(new ArrayList<>(targets)));
+        if (matrix.hops.length == 0) {
+            return matrix;
+        }
+
+        RoadGraph graph = matrix.sources.get(0).getGraph();
+        for (City city : matrix.sources) {
+            checkGraph(graph, city);
+        }
+        for (City city : matrix.targets) {
+            checkGraph(graph, city);
+        }
+
+        // Снимок графа собирается до запуска потоков, дальше его массивы только читаются
+        CompiledGraph snapshot = graph.compile();
+        int[] targetIds = new int[matrix.targets.size()];
+        boolean[] isTarget = new boolean[snapshot.size];
+        int distinctTargets = 0;
+        for (int i = 0; i < targetIds.length; i++) {
+            targetIds[i] = matrix.targets.get(i).getId();
+            if (!isTarget[targetIds[i]]) {
+                isTarget[targetIds[i]] = true;
+                distinctTargets++;
+            }
+        }
+
+        pool.invoke(matrix.new RowsTask(snapshot, targetIds, isTarget, distinctTargets, 0, matrix.sources.size()));
+        return matrix;
+    }
+
+    private static void checkGraph(RoadGraph graph, City city) {
+        if (city == null) {
+            throw new IllegalArgumentException("Город не может быть null");
+        }
+        if (city.getGraph() != graph) {
+            throw new IllegalArgumentException("Город " + city.getName() + " принадлежит другому графу");
+        }
+    }
+
+    // Рекурсивно делит диапазон строк, каждая строка - отдельная задача
+    private final class RowsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompiledGraph graph;
+        private final int[] targetIds;
+        private final boolean[] isTarget;
+        private final int distinctTargets;
+        private final int from;
+        private final int to;
+
+        RowsTask(CompiledGraph graph, int[] targetIds, boolean[] isTarget, int distinctTargets, int from, int to) {
+            this.graph = graph;
+            this.targetIds = targetIds;
+            this.isTarget = isTarget;
+            this.distinctTargets = distinctTargets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowsTask(graph, targetIds, isTarget, distinctTargets, from, middle),
+                        new RowsTask(graph, targetIds, isTarget, distinctTargets, middle, to));
+                return;
+            }
+            fillRow(from);
+        }
+
+        private void fillRow(int row) {
+            RouteSearchContext context = PathFinder.context(graph);
+            int source = sources.get(row).getId();
+            int rowOffset = row * targetIds.length;
+
+            try {
+                PathFinder.searchHops(graph, context, source, isTarget, distinctTargets);
+                for (int column = 0; column < targetIds.length; column++) {
+                    long value = context.forwardDistanceOf(targetIds[column]);
+                    hops[rowOffset + column] = value == Long.MAX_VALUE ? UNREACHABLE : (int) value;
+                }
+            } finally {
+                context.reset();
+            }
+
+            try {
+                PathFinder.searchCosts(graph, context, source, isTarget, distinctTargets);
+                for (int column = 0; column < targetIds.length; column++) {
+                    long value = context.forwardDistanceOf(targetIds[column]);
+                    costs[rowOffset + column] = value == Long.MAX_VALUE ? UNREACHABLE : value;
+                }
+            } finally {
+                context.reset();
+            }
+        }
+    }
+
+    public List<City> getSources() { return sources; }
+    public List<City> getTargets() { return targets; }
+    public int getRowCount() { return sources.size(); }
+    public int getColumnCount() { return targets.size(); }
+
+    /**
+     * Наименьшее число дорог от источника row до цели column или UNREACHABLE.
+     */
+    public int getHops(int row, int column) {
+        return hops[index(row, column)];
+    }
+
+    /**
+     * Наименьшая стоимость пути от источника row до цели column или UNREACHABLE.
+     */
+    public long getCost(int row, int column) {
+        return costs[index(row, column)];
+    }
+
+    /**
+     * Копия таблицы числа дорог, построчно.
+     */
+    public int[] getHopsMatrix() {
+        return hops.clone();
+    }
+
+    /**
+     * Копия таблицы стоимостей, построчно.
+     */
+    public long[] getCostMatrix() {
+        return costs.clone();
+    }
+
+    private int index(int row, int column) {
+        if (row < 0 || row >= sources.size() || column < 0 || column >= targets.size()) {
+            throw new IndexOutOfBoundsException("Нет ячейки [" + row + ", " + column + "]");
+        }
+        return row * targets.size() + column;
+    }
+}
@@ -0,0 +1,351 @@
+package ru.anyanov.city;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Деревья кратчайших (самых дешевых) путей от зарегистрированных городов-источников,
+ * которые поддерживаются в актуальном состоянии при добавлении и удалении дорог.
+ *
+ * Вместо полного пересчета после City.addRoad/City.removeRoad деревья
+ * чинятся инкрементально (по схеме Ramalingam-Reps):
+ * - новая дорога u - v, улучшившая расстояние до v, запускает алгоритм Дейкстры
+ *   от v, который просматривает только города, чье расстояние уменьшилось;
+ * - удаление дороги вне дерева ничего не меняет, а удаление дороги дерева
+ *   сбрасывает поддерево, висевшее на ней, заново находит для его городов лучших
+ *   соседей вне поддерева и досчитывает расстояния алгоритмом Дейкстры внутри него.
+ * Поэтому стоимость обновления пропорциональна числу городов, чье расстояние
+ * изменилось, и их дорогам, а не размеру графа.
+ * Пакетные изменения (RoadGraph.addRoads, загрузка снимка) помечают деревья
+ * устаревшими, и они пересчитываются целиком при следующем запросе.
+ *
+ * Методы синхронизированы, поэтому объект можно использовать с графом
+ * из RoadGraph.createConcurrent(). После использования его нужно закрыть (close()),
+ * иначе граф продолжит уведомлять его об изменениях дорог.
+ */
+public final class DynamicShortestPaths implements AutoCloseable {
+    private static final long UNKNOWN = Long.MAX_VALUE;
+
+    private final RoadGraph graph;
+    private final Map<City, Tree> trees = new LinkedHashMap<>();
+    private final RoadGraph.RoadListener listener = new Listener();
+
+    // Рабочие массивы, общие для всех деревьев
+    private IndexedMinHeap heap = new IndexedMinHeap(0);
+    private int[] stack = new int[0];
+    private int[] subtree = new int[0];
+    private int subtreeCount;
+    // Города поддерева текущего удаления отмечены subtreeMark[id] == stamp
+    private int[] subtreeMark = new int[0];
+    private int stamp;
+
+    private long updatedCities;
+
+    public DynamicShortestPaths(RoadGraph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Граф дорог не может быть null");
+        }
+        this.graph = graph;
+        graph.addListener(listener);
+    }
+
+    /**
+     * Регистрирует город как источник и строит дерево путей от него.
+     * Сложность: O((V + E) log V)
+     */
+    public synchronized void addSource(City source) {
+        checkCity(source);
+        if (!trees.containsKey(source)) {
+            Tree tree = new Tree(source.getId());
+            rebuild(tree);
+            trees.put(source, tree);
+        }
+    }
+
+    public synchronized void removeSource(City source) {
+        trees.remove(source);
+    }
+
+    public synchronized List<City> getSources() {
+        return new ArrayList<>(trees.keySet());
+    }
+
+    /**
+     * Стоимость самого дешевого пути от зарегистрированного источника до target
+     * или -1, если пути нет.
+     */
+    public synchronized long getCost(City source, City target) {
+        Tree tree = tree(source);
+        checkCity(target);
+        int id = target.getId();
+        if (id >= tree.distance.length || tree.distance[id] == UNKNOWN) {
+            return -1;
+        }
+        return tree.distance[id];
+    }
+
+    /**
+     * Самый дешевый путь от зарегистрированного источника до target
+     * или пустой массив, если пути нет.
+     */
+    public synchronized City[] getRoute(City source, City target) {
+        Tree tree = tree(source);
+        checkCity(target);
+        int id = target.getId();
+        if (id >= tree.distance.length || tree.distance[id] == UNKNOWN) {
+            return new City[0];
+        }
+
+        int length = 1;
+        for (int current = id; current != tree.source; current = tree.parent[current]) {
+            length++;
+        }
+        City[] route = new City[length];
+        int current = id;
+        for (int i = length - 1; i >= 0; i--) {
+            route[i] = graph.getCity(current);
+            current = tree.parent[current];
+        }
+        return route;
+    }
+
+    /**
+     * Сколько раз города получали новое расстояние при обновлениях деревьев
+     * (с момента создания или последнего resetStatistics()).
+     */
+    public synchronized long getUpdatedCities() {
+        return updatedCities;
+    }
+
+    public synchronized void resetStatistics() {
+        updatedCities = 0;
+    }
+
+    /**
+     * Отключает объект от графа. Зарегистрированные деревья больше не обновляются.
+     */
+    @Override
+    public synchronized void close() {
+        graph.removeListener(listener);
+        trees.clear();
+    }
+
+    private void checkCity(City city) {
+        if (city == null) {
+            throw new IllegalArgumentException("Город не может быть null");
+        }
+        if (city.getGraph() != graph) {
+            throw new IllegalArgumentException("Город " + city.getName() + " принадлежит другому графу");
+        }
+    }
+
+    // Дерево зарегистрированного источника, актуальное для текущего графа
+    private Tree tree(City source) {
+        checkCity(source);
+        Tree tree = trees.get(source);
+        if (tree == null) {
+            throw new IllegalArgumentException("Город " + source.getName() + " не зарегистрирован как источник");
+        }
+        if (tree.stale) {
+            rebuild(tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Дерево путей одного источника: расстояние и предыдущий город на пути для каждого города.
+     */
+    private static final class Tree {
+        final int source;
+        long[] distance = new long[0];
+        int[] parent = new int[0];
+        boolean stale;
+
+        Tree(int source) {
+            this.source = source;
+        }
+    }
+
+    // Расширяет массивы дерева и рабочие массивы под текущее число городов
+    private void ensureSize(Tree tree) {
+        int size = graph.size();
+        if (tree.distance.length < size) {
+            int oldLength = tree.distance.length;
+            tree.distance = Arrays.copyOf(tree.distance, size);
+            tree.parent = Arrays.copyOf(tree.parent, size);
+            Arrays.fill(tree.distance, oldLength, size, UNKNOWN);
+            Arrays.fill(tree.parent, oldLength, size, -1);
+        }
+        if (stack.length < size) {
+            int capacity = Math.max(size, stack.length * 3 / 2);
+            heap = new IndexedMinHeap(capacity);
+            stack = new int[capacity];
+            subtree = new int[capacity];
+            subtreeMark = Arrays.copyOf(subtreeMark, capacity);
+        }
+    }
+
+    // Полный пересчет дерева алгоритмом Дейкстры
+    private void rebuild(Tree tree) {
+        ensureSize(tree);
+        Arrays.fill(tree.distance, UNKNOWN);
+        Arrays.fill(tree.parent, -1);
+        tree.distance[tree.source] = 0;
+        tree.parent[tree.source] = tree.source;
+        heap.push(tree.source, 0);
+        propagate(tree);
+        tree.stale = false;
+    }
+
+    /**
+     * Алгоритм Дейкстры от городов, уже находящихся в куче: извлекает города
+     * и улучшает расстояния соседей, пока куча не опустеет.
+     */
+    private void propagate(Tree tree) {
+        long[] distance = tree.distance;
+        int[] parent = tree.parent;
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            updatedCities++;
+            long currentDistance = distance[current];
+            RoadGraph.Adjacency roads = graph.adjacency(current);
+            for (int i = 0; i < roads.degree; i++) {
+                int neighbor = roads.targets[i];
+                if (neighbor >= distance.length) {
+                    // Город появился в конкурентном графе после расширения массивов,
+                    // его дорогу дерево учтет по уведомлению roadAdded
+                    continue;
+                }
+                long candidate = currentDistance + roads.costs[i];
+                if (candidate < distance[neighbor]) {
+                    distance[neighbor] = candidate;
+                    parent[neighbor] = current;
+                    heap.push(neighbor, candidate);
+                }
+            }
+        }
+    }
+
+    // Новая дорога может только уменьшить расстояния
+    private void roadAdded(Tree tree, int from, int to, int cost) {
+        long[] distance = tree.distance;
+        if (distance[from] != UNKNOWN && distance[from] + cost < distance[to]) {
+            distance[to] = distance[from] + cost;
+            tree.parent[to] = from;
+            heap.push(to, distance[to]);
+        }
+        if (distance[to] != UNKNOWN && distance[to] + cost < distance[from]) {
+            distance[from] = distance[to] + cost;
+            tree.parent[from] = to;
+            heap.push(from, distance[from]);
+        }
+        propagate(tree);
+    }
+
+    // Удаление дороги меняет расстояния только в поддереве, которое на ней висело
+    private void roadRemoved(Tree tree, int from, int to) {
+        int[] parent = tree.parent;
+        int root;
+        if (parent[to] == from && to != tree.source) {
+            root = to;
+        } else if (parent[from] == to && from != tree.source) {
+            root = from;
+        } else {
+            return; // Дорога не входила в дерево
+        }
+
+        long[] distance = tree.distance;
+        collectSubtree(tree, root);
+
+        // Сбрасываем поддерево
+        for (int i = 0; i < subtreeCount; i++) {
+            int id = subtree[i];
+            distance[id] = UNKNOWN;
+            parent[id] = -1;
+        }
+        // Для каждого города поддерева ищем лучшего соседа вне его
+        for (int i = 0; i < subtreeCount; i++) {
+            int id = subtree[i];
+            RoadGraph.Adjacency roads = graph.adjacency(id);
+            for (int k = 0; k < roads.degree; k++) {
+                int neighbor = roads.targets[k];
+                if (neighbor < distance.length && subtreeMark[neighbor] != stamp && distance[neighbor] != UNKNOWN
+                        && distance[neighbor] + roads.costs[k] < distance[id]) {
+                    distance[id] = distance[neighbor] + roads.costs[k];
+                    parent[id] = neighbor;
+                }
+            }
+            if (distance[id] != UNKNOWN) {
+                heap.push(id, distance[id]);
+            }
+        }
+        propagate(tree);
+    }
+
+    /**
+     * Собирает в subtree все города, путь до которых в дереве проходит через root.
+     * Дети города - его соседи, у которых он записан предыдущим городом.
+     */
+    private void collectSubtree(Tree tree, int root) {
+        int[] parent = tree.parent;
+        if (++stamp == 0) {
+            Arrays.fill(subtreeMark, 0);
+            stamp = 1;
+        }
+        subtreeCount = 0;
+        int top = 0;
+        stack[top++] = root;
+        subtreeMark[root] = stamp;
+        while (top > 0) {
+            int current = stack[--top];
+            subtree[subtreeCount++] = current;
+            RoadGraph.Adjacency roads = graph.adjacency(current);
+            for (int i = 0; i < roads.degree; i++) {
+                int child = roads.targets[i];
+                if (child < parent.length && parent[child] == current && subtreeMark[child] != stamp) {
+                    subtreeMark[child] = stamp;
+                    stack[top++] = child;
+                }
+            }
+        }
+    }
+
+    // Уведомления графа; вызываются в потоке, изменившем дорогу
+    private final class Listener implements RoadGraph.RoadListener {
+        @Override
+        public void roadAdded(int from, int to, int cost) {
+            synchronized (DynamicShortestPaths.this) {
+                for (Tree tree : trees.values()) {
+                    if (!tree.stale) {
+                        ensureSize(tree);
+                        DynamicShortestPaths.this.roadAdded(tree, from, to, cost);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void roadRemoved(int from, int to) {
+            synchronized (DynamicShortestPaths.this) {
+                for (Tree tree : trees.values()) {
+                    if (!tree.stale) {
+                        ensureSize(tree);
+                        DynamicShortestPaths.this.roadRemoved(tree, from, to);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void roadsChanged() {
+            synchronized (DynamicShortestPaths.this) {
+                for (Tree tree : trees.values()) {
+                    tree.stale = true;
+                }
+            }
+        }
+    }
+}
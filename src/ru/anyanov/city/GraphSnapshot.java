@@ -0,0 +1,187 @@
+package ru.anyanov.city;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Двоичный снимок графа дорог, читаемый и записываемый через отображение файла в память.
+ *
+ * Формат (все числа big-endian):
+ * <pre>
+ * int    MAGIC, int FORMAT_VERSION
+ * int    cityCount, int edgeCount        (edgeCount - число записей CSR, то есть 2 * число дорог)
+ * int[]  nameOffsets[cityCount + 1]      (смещения имен в блоке имен)
+ * byte[] names[nameOffsets[cityCount]]   (названия городов в UTF-8 подряд)
+ * double[] xs[cityCount], ys[cityCount]  (координаты, NaN если не заданы)
+ * int[]  offsets[cityCount + 1], targets[edgeCount], costs[edgeCount]
+ * </pre>
+ * Дороги хранятся прямо в CSR, поэтому загрузка копирует их массивами целиком,
+ * без вызова addRoad и без объектов на каждую дорогу.
+ */
+public final class GraphSnapshot {
+    private static final int MAGIC = 0x52474246; // "RGBF"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Записывает граф в файл, перезаписывая его.
+     */
+    public static void save(RoadGraph graph, Path file) throws IOException {
+        CompiledGraph snapshot = graph.compile();
+        int cityCount = snapshot.size;
+        int[] offsets = snapshot.offsets;
+        int[] targets = snapshot.targets;
+        int[] costs = snapshot.costs;
+
+        byte[][] names = new byte[cityCount][];
+        long namesLength = 0;
+        for (int id = 0; id < cityCount; id++) {
+            names[id] = graph.getCity(id).getName().getBytes(StandardCharsets.UTF_8);
+            namesLength += names[id].length;
+        }
+
+        long fileSize = HEADER_SIZE
+                + (long) (cityCount + 1) * Integer.BYTES + namesLength
+                + 2L * cityCount * Double.BYTES
+                + (long) (cityCount + 1) * Integer.BYTES
+                + 2L * targets.length * Integer.BYTES;
+        if (fileSize > Integer.MAX_VALUE || namesLength > Integer.MAX_VALUE) {
+            throw new IOException("Граф слишком велик для одного снимка: " + fileSize + " байт");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(cityCount).putInt(targets.length);
+
+            int nameOffset = 0;
+            buffer.putInt(nameOffset);
+            for (byte[] name : names) {
+                nameOffset += name.length;
+                buffer.putInt(nameOffset);
+            }
+            for (byte[] name : names) {
+                buffer.put(name);
+            }
+
+            for (int id = 0; id < cityCount; id++) {
+                buffer.putDouble(snapshot.xs[id]);
+            }
+            for (int id = 0; id < cityCount; id++) {
+                buffer.putDouble(snapshot.ys[id]);
+            }
+
+            // Массовая запись массивов через представление IntBuffer
+            buffer.asIntBuffer().put(offsets, 0, cityCount + 1);
+            buffer.position(buffer.position() + (cityCount + 1) * Integer.BYTES);
+            buffer.asIntBuffer().put(targets);
+            buffer.position(buffer.position() + targets.length * Integer.BYTES);
+            buffer.asIntBuffer().put(costs);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Загружает граф из файла в новый однопоточный RoadGraph.
+     * Содержимое файла проверяется: поврежденный или исправленный вручную снимок
+     * (обрезанный файл, дорога только в одну сторону, повторные дороги, петли,
+     * несуществующие города, отрицательные стоимости, повторные названия городов)
+     * приводит к IOException, а не к ошибкам при последующей работе с графом.
+     */
+    public static RoadGraph load(Path file) throws IOException {
+        return load(file, new RoadGraph());
+    }
+
+    /**
+     * Загружает граф из файла в пустой граф graph, например созданный через
+     * RoadGraph.createConcurrent(). Проверки те же, что в load(Path).
+     * Если файл поврежден, graph может остаться заполненным частично.
+     * @return graph
+     * @throws IllegalArgumentException если в графе уже есть города
+     */
+    public static RoadGraph load(Path file, RoadGraph graph) throws IOException {
+        if (graph == null) {
+            throw new IllegalArgumentException("Граф дорог не может быть null");
+        }
+        if (graph.size() != 0) {
+            throw new IllegalArgumentException("Снимок можно загрузить только в пустой граф");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Файл снимка слишком велик: " + channel.size() + " байт");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, graph);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Файл снимка графа обрезан: " + file, e);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Поврежденный файл снимка графа " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static RoadGraph read(MappedByteBuffer buffer, RoadGraph graph) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Файл не является снимком графа дорог");
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Неподдерживаемая версия формата снимка: " + formatVersion);
+        }
+        int cityCount = buffer.getInt();
+        int edgeCount = buffer.getInt();
+        if (cityCount < 0 || edgeCount < 0) {
+            throw new IOException("Некорректный заголовок снимка графа");
+        }
+        // Проверка до выделения массивов: заголовок обрезанного файла не должен
+        // приводить к огромным выделениям памяти
+        long minimumSize = 2L * (cityCount + 1) * Integer.BYTES + 2L * cityCount * Double.BYTES
+                + 2L * edgeCount * Integer.BYTES;
+        if (minimumSize > buffer.remaining()) {
+            throw new IOException("Файл снимка графа обрезан");
+        }
+
+        int[] nameOffsets = readInts(buffer, cityCount + 1);
+        byte[] names = new byte[nameOffsets[cityCount]];
+        buffer.get(names);
+
+        graph.ensureCapacity(cityCount);
+        for (int id = 0; id < cityCount; id++) {
+            String name = new String(names, nameOffsets[id], nameOffsets[id + 1] - nameOffsets[id],
+                    StandardCharsets.UTF_8);
+            new City(name, graph);
+        }
+
+        double[] xs = new double[cityCount];
+        double[] ys = new double[cityCount];
+        buffer.asDoubleBuffer().get(xs);
+        buffer.position(buffer.position() + cityCount * Double.BYTES);
+        buffer.asDoubleBuffer().get(ys);
+        buffer.position(buffer.position() + cityCount * Double.BYTES);
+        for (int id = 0; id < cityCount; id++) {
+            if (!Double.isNaN(xs[id])) {
+                graph.setLocation(id, xs[id], ys[id]);
+            }
+        }
+
+        int[] offsets = readInts(buffer, cityCount + 1);
+        int[] targets = readInts(buffer, edgeCount);
+        int[] costs = readInts(buffer, edgeCount);
+        graph.loadRoads(offsets, targets, costs);
+        return graph;
+    }
+
+    private static int[] readInts(MappedByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+}
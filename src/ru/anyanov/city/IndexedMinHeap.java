@@ -0,0 +1,121 @@
+package ru.anyanov.city;
+
+import java.util.Arrays;
+
+/**
+ * Двоичная куча идентификаторов городов с приоритетами типа long.
+ * Хранит все в примитивных массивах, поэтому не упаковывает значения
+ * и поддерживает уменьшение приоритета за O(log n) через индекс позиций.
+ */
+final class IndexedMinHeap {
+    private final int[] heap;       // Идентификаторы в порядке кучи
+    private final long[] keys;      // Приоритеты, параллельно heap
+    private final int[] positions;  // Позиция идентификатора в куче, -1 если его нет
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new long[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return positions[id] >= 0;
+    }
+
+    long peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * Добавляет идентификатор или уменьшает его приоритет, если он уже в куче.
+     */
+    void push(int id, long key) {
+        int position = positions[id];
+        if (position < 0) {
+            position = size++;
+        } else if (key >= keys[position]) {
+            return;
+        }
+        siftUp(position, id, key);
+    }
+
+    /**
+     * Задает новый приоритет: добавляет идентификатор, уменьшает или увеличивает его приоритет.
+     */
+    void update(int id, long key) {
+        int position = positions[id];
+        if (position < 0 || key < keys[position]) {
+            push(id, key);
+        } else if (key > keys[position]) {
+            siftDown(position, id, key);
+        }
+    }
+
+    /**
+     * Извлекает идентификатор с наименьшим приоритетом.
+     */
+    int poll() {
+        int top = heap[0];
+        positions[top] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(0, heap[size], keys[size]);
+        }
+        return top;
+    }
+
+    /**
+     * Очищает кучу за O(size), не трогая остальную часть индекса позиций.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position, int id, long key) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            place(position, heap[parent], keys[parent]);
+            position = parent;
+        }
+        place(position, id, key);
+    }
+
+    private void siftDown(int position, int id, long key) {
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keys[right] < keys[child]) {
+                child = right;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            place(position, heap[child], keys[child]);
+            position = child;
+        }
+        place(position, id, key);
+    }
+
+    private void place(int position, int id, long key) {
+        heap[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.anyanov.city;
+
+/**
+ * Гистограмма времени выполнения в наносекундах с логарифмическими корзинами
+ * (как в HdrHistogram). Каждый интервал [2^e, 2^(e+1)) делится на SUB_BUCKETS
+ * равных корзин, поэтому относительная погрешность любого значения
+ * не больше 1 / SUB_BUCKETS (около 3%) при фиксированной памяти.
+ *
+ * Объект - неизменяемый снимок счетчиков корзин; сами счетчики ведет RouteMetrics
+ * (по массиву на поток), номер корзины значения дает bucket().
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Значения больше 2^MAX_EXPONENT нс (около 18 минут) попадают в последнюю корзину
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final long[] counts;
+    private final long count;
+
+    LatencyHistogram(long[] counts) {
+        this.counts = counts;
+        long total = 0;
+        for (long value : counts) {
+            total += value;
+        }
+        this.count = total;
+    }
+
+    /**
+     * Корзина значения: значения меньше SUB_BUCKETS хранятся точно, у больших
+     * корзину задают порядок (номер старшего бита) и следующие SUB_BUCKET_BITS бит.
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // Наибольшее значение, попадающее в корзину
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long mantissa = (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Значение, которое не превышают percentile процентов записей
+     * (верхняя граница его корзины), или 0, если записей нет.
+     */
+    long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Процентиль должен быть от 0 до 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Верхняя граница последней непустой корзины или 0, если записей нет.
+     */
+    long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return highestValue(i);
+            }
+        }
+        return 0;
+    }
+}
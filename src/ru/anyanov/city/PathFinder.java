@@ -0,0 +1,621 @@
+package ru.anyanov.city;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Алгоритмы поиска пути по неизменяемому CSR-снимку графа (CompiledGraph).
+ * Найденный путь записывается в context.path (идентификаторы городов
+ * от source до target включительно), методы возвращают его длину или 0, если пути нет.
+ *
+ * Дороги двусторонние, поэтому обратный поиск (от target) идет
+ * по тем же CSR-массивам. Состояние поиска хранится в RouteSearchContext,
+ * который переиспользуется в пределах потока, а снимок не меняется,
+ * поэтому поиски из разных потоков не мешают друг другу и писателям.
+ * В установившемся режиме поиск не выделяет память.
+ */
+final class PathFinder {
+    private static final ThreadLocal<RouteSearchContext> CONTEXT =
+            ThreadLocal.withInitial(RouteSearchContext::new);
+
+    private PathFinder() {
+    }
+
+    /**
+     * Ищет путь в режиме mode и записывает его в context.path.
+     * Контекст должен быть получен через context(snapshot); после поиска он сбрасывается,
+     * но путь в context.path остается до следующего поиска.
+     * Объем работы поиска остается в context.expanded и context.relaxed.
+     * @return длина пути или 0, если пути нет
+     */
+    static int find(Route.Mode mode, RoadGraph graph, CompiledGraph snapshot,
+                    RouteSearchContext context, int source, int target) {
+        context.expanded = 0;
+        context.relaxed = 0;
+        try {
+            switch (mode) {
+                case CHEAPEST:
+                    return findCheapest(snapshot, context, source, target);
+                case A_STAR:
+                    return findCheapestAStar(snapshot, context, source, target);
+                case CONTRACTION_HIERARCHY:
+                    ContractionHierarchy hierarchy = graph.getContractionHierarchy();
+                    if (hierarchy == null) {
+                        // Иерархия устарела, а перестраивается она только явно
+                        return findCheapest(snapshot, context, source, target);
+                    }
+                    context.prepare(hierarchy.size());
+                    return hierarchy.find(context, source, target);
+                default:
+                    return findFewestCities(snapshot, context, source, target);
+            }
+        } finally {
+            context.reset();
+        }
+    }
+
+    /**
+     * Двунаправленный BFS: путь через наименьшее число городов.
+     * Поиск ведется одновременно от начала и от конца; на каждом шаге
+     * целиком раскрывается уровень меньшего фронта. Первая же встреча фронтов
+     * дает кратчайший путь, так как уровни раскрываются синхронно.
+     * Сложность: O(V + E), на практике - порядка квадратного корня от однонаправленного.
+     */
+    private static int findFewestCities(CompiledGraph graph, RouteSearchContext context, int source, int target) {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int stamp = context.stamp;
+        int[] forwardStamp = context.forwardStamp;
+        int[] backwardStamp = context.backwardStamp;
+        int[] forwardParent = context.forwardParent;
+        int[] backwardParent = context.backwardParent;
+        int[] forwardQueue = context.forwardQueue;
+        int[] backwardQueue = context.backwardQueue;
+
+        forwardStamp[source] = stamp;
+        forwardParent[source] = source;
+        backwardStamp[target] = stamp;
+        backwardParent[target] = target;
+        forwardQueue[0] = source;
+        backwardQueue[0] = target;
+
+        // Счетчики работы ведутся в локальных переменных и записываются в контекст один раз
+        int expanded = 0;
+        long relaxed = 0;
+
+        // [head, tail) - текущий уровень фронта в очереди
+        int forwardHead = 0;
+        int forwardTail = 1;
+        int backwardHead = 0;
+        int backwardTail = 1;
+
+        while (forwardHead < forwardTail && backwardHead < backwardTail) {
+            boolean forward = forwardTail - forwardHead <= backwardTail - backwardHead;
+            int[] seen = forward ? forwardStamp : backwardStamp;
+            int[] oppositeSeen = forward ? backwardStamp : forwardStamp;
+            int[] parent = forward ? forwardParent : backwardParent;
+            int[] queue = forward ? forwardQueue : backwardQueue;
+            int head = forward ? forwardHead : backwardHead;
+            int levelEnd = forward ? forwardTail : backwardTail;
+            int tail = levelEnd;
+
+            for (; head < levelEnd; head++) {
+                int current = queue[head];
+                expanded++;
+                relaxed += offsets[current + 1] - offsets[current];
+                for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                    int neighbor = targets[edge];
+                    if (seen[neighbor] == stamp) {
+                        continue;
+                    }
+                    if (oppositeSeen[neighbor] == stamp) {
+                        // Фронты встретились
+                        context.expanded = expanded;
+                        context.relaxed = relaxed;
+                        return forward
+                                ? joinPaths(context, source, target, current, neighbor)
+                                : joinPaths(context, source, target, neighbor, current);
+                    }
+                    seen[neighbor] = stamp;
+                    parent[neighbor] = current;
+                    queue[tail++] = neighbor;
+                }
+            }
+
+            if (forward) {
+                forwardHead = head;
+                forwardTail = tail;
+            } else {
+                backwardHead = head;
+                backwardTail = tail;
+            }
+        }
+
+        context.expanded = expanded;
+        context.relaxed = relaxed;
+        return 0;
+    }
+
+    /**
+     * Двунаправленный алгоритм Дейкстры: путь с наименьшей суммарной стоимостью дорог.
+     * Каждый шаг извлекает город из той очереди, у которой меньше минимальный ключ.
+     * Поиск останавливается, как только сумма минимальных ключей обеих очередей
+     * становится не меньше стоимости лучшего найденного пути.
+     * Сложность: O((V + E) log V)
+     */
+    private static int findCheapest(CompiledGraph graph, RouteSearchContext context, int source, int target) {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] costs = graph.costs;
+        int stamp = context.stamp;
+        int[] forwardStamp = context.forwardStamp;
+        int[] backwardStamp = context.backwardStamp;
+        int[] forwardParent = context.forwardParent;
+        int[] backwardParent = context.backwardParent;
+        long[] forwardDistance = context.forwardDistance;
+        long[] backwardDistance = context.backwardDistance;
+        IndexedMinHeap forwardHeap = context.forwardHeap;
+        IndexedMinHeap backwardHeap = context.backwardHeap;
+
+        forwardStamp[source] = stamp;
+        forwardDistance[source] = 0;
+        forwardParent[source] = source;
+        backwardStamp[target] = stamp;
+        backwardDistance[target] = 0;
+        backwardParent[target] = target;
+        forwardHeap.push(source, 0);
+        backwardHeap.push(target, 0);
+
+        long best = Long.MAX_VALUE;
+        int meetFrom = -1; // Дорога meetFrom -> meetTo соединяет два дерева поиска
+        int meetTo = -1;
+        int expanded = 0;
+        long relaxed = 0;
+
+        while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+            if (best != Long.MAX_VALUE && forwardHeap.peekKey() + backwardHeap.peekKey() >= best) {
+                break;
+            }
+
+            boolean forward = forwardHeap.peekKey() <= backwardHeap.peekKey();
+            IndexedMinHeap heap = forward ? forwardHeap : backwardHeap;
+            int[] seen = forward ? forwardStamp : backwardStamp;
+            int[] oppositeSeen = forward ? backwardStamp : forwardStamp;
+            int[] parent = forward ? forwardParent : backwardParent;
+            long[] distance = forward ? forwardDistance : backwardDistance;
+            long[] opposite = forward ? backwardDistance : forwardDistance;
+
+            int current = heap.poll();
+            long currentDistance = distance[current];
+            expanded++;
+            relaxed += offsets[current + 1] - offsets[current];
+            for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                int neighbor = targets[edge];
+                long candidate = currentDistance + costs[edge];
+                if (seen[neighbor] != stamp || candidate < distance[neighbor]) {
+                    seen[neighbor] = stamp;
+                    distance[neighbor] = candidate;
+                    parent[neighbor] = current;
+                    heap.push(neighbor, candidate);
+                }
+                if (oppositeSeen[neighbor] == stamp && candidate + opposite[neighbor] < best) {
+                    best = candidate + opposite[neighbor];
+                    meetFrom = forward ? current : neighbor;
+                    meetTo = forward ? neighbor : current;
+                }
+            }
+        }
+
+        context.expanded = expanded;
+        context.relaxed = relaxed;
+        if (meetFrom == -1) {
+            return 0;
+        }
+        return joinPaths(context, source, target, meetFrom, meetTo);
+    }
+
+    /**
+     * Алгоритм A*: путь с наименьшей суммарной стоимостью дорог, где очередь
+     * упорядочена по g + h, а эвристика h - евклидово расстояние до цели,
+     * умноженное на CompiledGraph.heuristicScale. Эвристика монотонна,
+     * поэтому каждый город извлекается из очереди не более одного раза.
+     * Без координат у городов работает как алгоритм Дейкстры.
+     */
+    private static int findCheapestAStar(CompiledGraph graph, RouteSearchContext context, int source, int target) {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] costs = graph.costs;
+        double scale = graph.heuristicScale;
+        int stamp = context.stamp;
+        int[] seen = context.forwardStamp;
+        int[] previous = context.forwardParent;
+        long[] distance = context.forwardDistance;
+        IndexedMinHeap heap = context.forwardHeap;
+
+        seen[source] = stamp;
+        distance[source] = 0;
+        previous[source] = source;
+        heap.push(source, heuristic(graph, scale, source, target));
+        int expanded = 0;
+        long relaxed = 0;
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            expanded++;
+            if (current == target) {
+                context.expanded = expanded;
+                context.relaxed = relaxed;
+                return buildPath(context, source, target);
+            }
+
+            long currentDistance = distance[current];
+            relaxed += offsets[current + 1] - offsets[current];
+            for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                int neighbor = targets[edge];
+                long candidate = currentDistance + costs[edge];
+                if (seen[neighbor] != stamp || candidate < distance[neighbor]) {
+                    seen[neighbor] = stamp;
+                    distance[neighbor] = candidate;
+                    previous[neighbor] = current;
+                    heap.push(neighbor, candidate + heuristic(graph, scale, neighbor, target));
+                }
+            }
+        }
+
+        context.expanded = expanded;
+        context.relaxed = relaxed;
+        return 0;
+    }
+
+    /**
+     * Алгоритм Йена: до k самых дешевых путей без повторяющихся городов
+     * от source до target в порядке возрастания стоимости.
+     * Пути записываются в paths, их стоимости - в pathCosts; возвращается число найденных путей.
+     *
+     * Общее состояние всех итераций:
+     * - один полный обратный поиск от target дает точную стоимость пути до цели
+     *   от каждого города; запреты только увеличивают стоимости, поэтому она служит
+     *   допустимой и монотонной эвристикой A* для каждого поиска ответвления,
+     *   и такой поиск почти не отходит от кратчайшего продолжения;
+     * - запрещенные города и дороги отмечаются в массивах контекста номером набора
+     *   запретов, поэтому их не нужно снимать после каждого поиска;
+     * - ответвления ищутся только начиная с города, где путь отделился
+     *   от своего предшественника (модификация Лоулера): более ранние ответвления
+     *   уже были рассмотрены для предшественника.
+     */
+    static int findKCheapest(CompiledGraph graph, int source, int target, int k,
+                             int[][] paths, long[] pathCosts) {
+        RouteSearchContext context = CONTEXT.get();
+        context.prepare(graph.size);
+        context.prepareAlternatives(graph.size, graph.targets.length);
+        try {
+            return findKCheapest(graph, context, source, target, k, paths, pathCosts);
+        } finally {
+            context.reset();
+        }
+    }
+
+    private static int findKCheapest(CompiledGraph graph, RouteSearchContext context, int source, int target,
+                                     int k, int[][] paths, long[] pathCosts) {
+        fillTargetDistances(graph, context, target);
+        if (context.targetDistance[source] == Long.MAX_VALUE) {
+            return 0;
+        }
+
+        context.nextBanStamp();
+        pathCosts[0] = searchAvoiding(graph, context, source, target);
+        paths[0] = Arrays.copyOf(context.path, buildPath(context, source, target));
+        context.reset();
+        int[] deviations = new int[k];
+
+        // Кандидаты упорядочены по стоимости, при равной стоимости - по времени появления
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        Set<Candidate> seen = new HashSet<>();
+        int count = 1;
+        for (; count < k; count++) {
+            int[] previous = paths[count - 1];
+            int deviation = deviations[count - 1];
+            long rootCost = 0;
+            for (int i = 0; i < deviation; i++) {
+                rootCost += graph.costs[roadIndex(graph, previous[i], previous[i + 1])];
+            }
+
+            for (int i = deviation; i < previous.length - 1; i++) {
+                int spur = previous[i];
+                int stamp = context.nextBanStamp();
+                // Корень пути до ответвления нельзя проходить повторно
+                for (int j = 0; j < i; j++) {
+                    context.bannedCities[previous[j]] = stamp;
+                }
+                // Запрещаем продолжения уже найденных путей с тем же корнем
+                for (int p = 0; p < count; p++) {
+                    int[] path = paths[p];
+                    if (path.length > i + 1 && Arrays.equals(path, 0, i + 1, previous, 0, i + 1)) {
+                        context.bannedRoads[roadIndex(graph, spur, path[i + 1])] = stamp;
+                    }
+                }
+
+                long spurCost = searchAvoiding(graph, context, spur, target);
+                if (spurCost >= 0) {
+                    int spurLength = buildPath(context, spur, target);
+                    int[] path = Arrays.copyOf(previous, i + spurLength);
+                    System.arraycopy(context.path, 0, path, i, spurLength);
+                    Candidate candidate = new Candidate(path, rootCost + spurCost, i, seen.size());
+                    if (seen.add(candidate)) {
+                        candidates.add(candidate);
+                    }
+                }
+                context.reset();
+                rootCost += graph.costs[roadIndex(graph, spur, previous[i + 1])];
+            }
+
+            Candidate best = candidates.poll();
+            if (best == null) {
+                break;
+            }
+            paths[count] = best.path;
+            pathCosts[count] = best.cost;
+            deviations[count] = best.deviation;
+        }
+        return count;
+    }
+
+    /**
+     * Алгоритм Дейкстры от target по всему графу: стоимость пути до target
+     * от каждого города записывается в context.targetDistance.
+     */
+    private static void fillTargetDistances(CompiledGraph graph, RouteSearchContext context, int target) {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] costs = graph.costs;
+        long[] distance = context.targetDistance;
+        IndexedMinHeap heap = context.forwardHeap;
+
+        Arrays.fill(distance, 0, graph.size, Long.MAX_VALUE);
+        distance[target] = 0;
+        heap.push(target, 0);
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            long currentDistance = distance[current];
+            for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                int neighbor = targets[edge];
+                long candidate = currentDistance + costs[edge];
+                if (candidate < distance[neighbor]) {
+                    distance[neighbor] = candidate;
+                    heap.push(neighbor, candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * A* от from до target в обход запрещенных городов и дорог с эвристикой
+     * context.targetDistance. Возвращает стоимость пути или -1, если пути нет;
+     * сам путь остается в context.forwardParent (см. buildPath).
+     */
+    private static long searchAvoiding(CompiledGraph graph, RouteSearchContext context, int from, int target) {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] costs = graph.costs;
+        long[] toTarget = context.targetDistance;
+        int[] bannedCities = context.bannedCities;
+        int[] bannedRoads = context.bannedRoads;
+        int banStamp = context.banStamp;
+        int stamp = context.stamp;
+        int[] seen = context.forwardStamp;
+        int[] parent = context.forwardParent;
+        long[] distance = context.forwardDistance;
+        IndexedMinHeap heap = context.forwardHeap;
+
+        seen[from] = stamp;
+        distance[from] = 0;
+        parent[from] = from;
+        heap.push(from, toTarget[from]);
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            if (current == target) {
+                return distance[current];
+            }
+
+            long currentDistance = distance[current];
+            for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                int neighbor = targets[edge];
+                // Из города, не связанного с целью, до нее не добраться и с запретами
+                if (bannedRoads[edge] == banStamp || bannedCities[neighbor] == banStamp
+                        || toTarget[neighbor] == Long.MAX_VALUE) {
+                    continue;
+                }
+                long candidate = currentDistance + costs[edge];
+                if (seen[neighbor] != stamp || candidate < distance[neighbor]) {
+                    seen[neighbor] = stamp;
+                    distance[neighbor] = candidate;
+                    parent[neighbor] = current;
+                    heap.push(neighbor, candidate + toTarget[neighbor]);
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Индекс дороги from -> to в CSR-массивах
+    private static int roadIndex(CompiledGraph graph, int from, int to) {
+        for (int edge = graph.offsets[from]; edge < graph.offsets[from + 1]; edge++) {
+            if (graph.targets[edge] == to) {
+                return edge;
+            }
+        }
+        throw new IllegalStateException("Нет дороги между городами " + from + " и " + to);
+    }
+
+    // Путь-кандидат алгоритма Йена; равенство - по последовательности городов
+    private static final class Candidate implements Comparable<Candidate> {
+        final int[] path;
+        final long cost;
+        final int deviation; // Индекс города, где путь отделился от предшественника
+        final int order;
+
+        Candidate(int[] path, long cost, int deviation, int order) {
+            this.path = path;
+            this.cost = cost;
+            this.deviation = deviation;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return cost != other.cost ? Long.compare(cost, other.cost) : Integer.compare(order, other.order);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Candidate && Arrays.equals(path, ((Candidate) obj).path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(path);
+        }
+    }
+
+    /**
+     * Контекст поиска текущего потока, подготовленный для графа.
+     */
+    static RouteSearchContext context(CompiledGraph graph) {
+        RouteSearchContext context = CONTEXT.get();
+        context.prepare(graph.size);
+        return context;
+    }
+
+    /**
+     * BFS от source по всему графу (или пока не будут найдены все targetCount
+     * различных городов, отмеченных в isTarget). Число дорог до каждого
+     * найденного города доступно через context.forwardDistanceOf(); вызывающий код
+     * обязан прочитать результат и вызвать context.reset().
+     */
+    static void searchHops(CompiledGraph graph, RouteSearchContext context, int source,
+                           boolean[] isTarget, int targetCount) {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int stamp = context.stamp;
+        int[] seen = context.forwardStamp;
+        long[] distance = context.forwardDistance;
+        int[] queue = context.forwardQueue;
+
+        seen[source] = stamp;
+        distance[source] = 0;
+        queue[0] = source;
+        int remaining = isTarget[source] ? targetCount - 1 : targetCount;
+        int head = 0;
+        int tail = 1;
+
+        while (head < tail && remaining > 0) {
+            int current = queue[head++];
+            for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                int neighbor = targets[edge];
+                if (seen[neighbor] != stamp) {
+                    seen[neighbor] = stamp;
+                    distance[neighbor] = distance[current] + 1;
+                    queue[tail++] = neighbor;
+                    if (isTarget[neighbor]) {
+                        remaining--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Алгоритм Дейкстры от source, пока не будут окончательно найдены все
+     * targetCount различных городов, отмеченных в isTarget. Стоимости доступны
+     * через context.forwardDistanceOf(); вызывающий код обязан вызвать context.reset().
+     */
+    static void searchCosts(CompiledGraph graph, RouteSearchContext context, int source,
+                            boolean[] isTarget, int targetCount) {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] costs = graph.costs;
+        int stamp = context.stamp;
+        int[] seen = context.forwardStamp;
+        long[] distance = context.forwardDistance;
+        IndexedMinHeap heap = context.forwardHeap;
+
+        seen[source] = stamp;
+        distance[source] = 0;
+        heap.push(source, 0);
+        int remaining = targetCount;
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            if (isTarget[current] && --remaining == 0) {
+                break;
+            }
+
+            long currentDistance = distance[current];
+            for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+                int neighbor = targets[edge];
+                long candidate = currentDistance + costs[edge];
+                if (seen[neighbor] != stamp || candidate < distance[neighbor]) {
+                    seen[neighbor] = stamp;
+                    distance[neighbor] = candidate;
+                    heap.push(neighbor, candidate);
+                }
+            }
+        }
+    }
+
+    // Округление вниз сохраняет монотонность эвристики при целых стоимостях дорог
+    private static long heuristic(CompiledGraph graph, double scale, int from, int to) {
+        return scale == 0 ? 0 : (long) (scale * graph.distance(from, to));
+    }
+
+    /**
+     * Записывает в context.path путь source -> ... -> target по цепочке context.forwardParent.
+     * @return длина пути
+     */
+    private static int buildPath(RouteSearchContext context, int source, int target) {
+        int[] previous = context.forwardParent;
+        int length = 1;
+        for (int current = target; current != source; current = previous[current]) {
+            length++;
+        }
+
+        // Заполняем путь от конца к началу
+        int[] path = context.path;
+        int current = target;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = current;
+            current = previous[current];
+        }
+        return length;
+    }
+
+    /**
+     * Склеивает в context.path путь source -> ... -> from из прямого дерева поиска
+     * и путь to -> ... -> target из обратного дерева.
+     * @return длина пути
+     */
+    private static int joinPaths(RouteSearchContext context, int source, int target, int from, int to) {
+        int[] forwardParent = context.forwardParent;
+        int[] backwardParent = context.backwardParent;
+        int forwardLength = 1;
+        for (int current = from; current != source; current = forwardParent[current]) {
+            forwardLength++;
+        }
+
+        int[] path = context.path;
+        int current = from;
+        for (int i = forwardLength - 1; i >= 0; i--) {
+            path[i] = current;
+            current = forwardParent[current];
+        }
+        int length = forwardLength;
+        for (current = to; current != target; current = backwardParent[current]) {
+            path[length++] = current;
+        }
+        path[length++] = target;
+        return length;
+    }
+}
@@ -0,0 +1,965 @@
+package ru.anyanov.city;
+
+import ru.anyanov.geometry.Point;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Граф дорог, на котором работают City и Route.
+ * Каждому городу назначается плотный целочисленный идентификатор (0..size-1),
+ * а дороги хранятся в примитивных массивах без объектов на каждое ребро.
+ *
+ * Дороги города хранятся в неизменяемом объекте Adjacency: изменение дороги
+ * создает новую копию списка (copy-on-write) и публикует ее одной записью.
+ * Для поиска маршрутов граф лениво собирается в неизменяемый снимок CompiledGraph
+ * в формате CSR (compressed sparse row).
+ *
+ * Граф, созданный через createConcurrent(), можно изменять и читать из нескольких потоков:
+ * читатели (Route, City.getRoads() и т.п.) работают по последнему опубликованному снимку
+ * (ограничения см. в createConcurrent()), а писатели меняют обе стороны дороги атомарно
+ * под блокировками из набора полос (lock striping), выбранных по идентификаторам городов.
+ * Граф, созданный конструктором, рассчитан на один поток и блокировок не берет.
+ */
+public final class RoadGraph {
+    private static final RoadGraph DEFAULT = new RoadGraph(false, false);
+    private static final int[] EMPTY = new int[0];
+    private static final int STRIPES = 64;
+    // Сколько раз сборка снимка пробует скопировать состояние графа без блокировки
+    private static final int OPTIMISTIC_CAPTURES = 2;
+
+    private static final VarHandle COMPILED;
+    private static final VarHandle ADJACENCY = MethodHandles.arrayElementVarHandle(Adjacency[].class);
+
+    static {
+        try {
+            COMPILED = MethodHandles.lookup().findVarHandle(RoadGraph.class, "compiled", CompiledGraph.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Неизменяемый после публикации список дорог одного города:
+     * соседи в targets[0..degree), стоимости дорог в costs с теми же индексами.
+     * Массивы могут быть длиннее degree; новая дорога дописывается за последней
+     * опубликованной и публикуется новым объектом с теми же массивами,
+     * поэтому читатели старой копии ее не видят и не мешают писателю.
+     */
+    static final class Adjacency {
+        static final Adjacency NONE = new Adjacency(EMPTY, EMPTY, 0);
+
+        final int[] targets;
+        final int[] costs;
+        // Меняется только у копии, которая строится в addRoads и еще не опубликована
+        int degree;
+
+        Adjacency(int[] targets, int[] costs, int degree) {
+            this.targets = targets;
+            this.costs = costs;
+            this.degree = degree;
+        }
+
+        int indexOf(int to) {
+            for (int i = 0; i < degree; i++) {
+                if (targets[i] == to) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Копия с добавленной дорогой; массивы копируются, только если в них нет места
+        Adjacency with(int to, int cost) {
+            int[] newTargets = targets;
+            int[] newCosts = costs;
+            if (degree == targets.length) {
+                int capacity = Math.max(4, degree * 2);
+                newTargets = Arrays.copyOf(targets, capacity);
+                newCosts = Arrays.copyOf(costs, capacity);
+            }
+            newTargets[degree] = to;
+            newCosts[degree] = cost;
+            return new Adjacency(newTargets, newCosts, degree + 1);
+        }
+
+        // Копия без дороги с индексом index, порядок остальных дорог сохраняется
+        Adjacency without(int index) {
+            int[] newTargets = new int[degree - 1];
+            int[] newCosts = new int[degree - 1];
+            System.arraycopy(targets, 0, newTargets, 0, index);
+            System.arraycopy(costs, 0, newCosts, 0, index);
+            System.arraycopy(targets, index + 1, newTargets, index, degree - index - 1);
+            System.arraycopy(costs, index + 1, newCosts, index, degree - index - 1);
+            return new Adjacency(newTargets, newCosts, degree - 1);
+        }
+    }
+
+    /**
+     * Получает уведомления об изменении дорог. Вызывается в потоке писателя
+     * под блокировками изменяемой дороги, уже после публикации изменения.
+     */
+    interface RoadListener {
+        void roadAdded(int from, int to, int cost);
+
+        void roadRemoved(int from, int to);
+
+        // Дороги изменены пакетом (addRoads, loadRoads)
+        void roadsChanged();
+    }
+
+    private final boolean concurrent;
+    // false только в графе по умолчанию: там, как и раньше, можно создать
+    // несколько городов с одним названием
+    private final boolean uniqueNames;
+    // Блокировки конкурентного режима, null в однопоточном графе.
+    // Изменения дорог и координат берут общую блокировку structure и полосы своих городов;
+    // регистрация городов, рост массивов, пакетная вставка и снятие снимка - эксклюзивную.
+    private final ReentrantReadWriteLock structure;
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock compileLock;
+    // Число писателей, держащих блокировки (только в конкурентном режиме);
+    // по нему сборка снимка проверяет, что копировала граф, пока его никто не менял
+    private final AtomicInteger activeWriters = new AtomicInteger();
+
+    private volatile City[] cities = new City[16];
+    private Map<String, City> citiesByName;
+    private volatile Adjacency[] adjacency = new Adjacency[16];
+    private volatile double[] xs = new double[16];
+    private volatile double[] ys = new double[16];
+    private volatile int size;
+    private final AtomicInteger locatedCount = new AtomicInteger();
+    private final AtomicInteger roadCount = new AtomicInteger();
+    // Счетчики новых дорог и копии списков смежности при пакетной вставке, вне addRoads пусты
+    private int[] pendingDegrees = EMPTY;
+    private Adjacency[] pendingAdjacency = new Adjacency[0];
+
+    // Счетчик изменений дорог и координат, по нему определяется актуальность снимка и кэша
+    private final AtomicLong version = new AtomicLong();
+    // Счетчик изменений только дорог, по нему определяется актуальность иерархии сжатия
+    private final AtomicLong roadVersion = new AtomicLong();
+
+    // Последний собранный снимок, читается через COMPILED (acquire/release)
+    @SuppressWarnings("unused")
+    private CompiledGraph compiled = CompiledGraph.EMPTY;
+
+    private volatile ContractionHierarchy hierarchy;
+    // Иерархию строит один поток за раз; запросы этот монитор не берут
+    private final Object hierarchyLock = new Object();
+
+    private final RouteCache routeCache;
+    private final RouteMetrics metrics = new RouteMetrics();
+
+    private final List<RoadListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ConnectivityIndex connectivity = new ConnectivityIndex();
+
+    private final SpatialIndex spatial = new SpatialIndex();
+
+    /**
+     * Создает пустой граф для работы из одного потока.
+     */
+    public RoadGraph() {
+        this(false, true);
+    }
+
+    private RoadGraph(boolean concurrent, boolean uniqueNames) {
+        this.concurrent = concurrent;
+        this.uniqueNames = uniqueNames;
+        if (concurrent) {
+            structure = new ReentrantReadWriteLock();
+            stripes = new ReentrantLock[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new ReentrantLock();
+            }
+            compileLock = new ReentrantLock();
+            citiesByName = new ConcurrentHashMap<>();
+        } else {
+            structure = null;
+            stripes = null;
+            compileLock = null;
+            citiesByName = new HashMap<>();
+        }
+        routeCache = new RouteCache(concurrent ? RouteCache.CONCURRENT_SEGMENTS : 1, RouteCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Создает пустой граф, который можно одновременно изменять и читать из нескольких потоков.
+     * Запросы маршрутов видят согласованный снимок графа: последний собранный,
+     * а если граф изменился - собранный заново.
+     *
+     * Ограничения. Снимок не обновляется по частям: первый запрос после любого изменения
+     * дорог или координат собирает его целиком, за O(V + E), поэтому при частых изменениях
+     * запросы в среднем заметно дороже, чем в неизменяемом графе.
+     * Пока один поток собирает снимок, остальные запросы не ждут его и ищут по предыдущему;
+     * ждут только запросы к городам, созданным после предыдущего снимка.
+     * Состояние графа для сборки копируется без блокировок (O(V)); если писатели
+     * все время мешают копированию, оно повторяется под эксклюзивной блокировкой,
+     * и на это время останавливаются писатели.
+     * Числа - ConcurrentRouteBenchmark в модуле benchmarks.
+     */
+    public static RoadGraph createConcurrent() {
+        return new RoadGraph(true, true);
+    }
+
+    /**
+     * Граф, в котором создаются города конструкторами без явного указания графа.
+     * В отличие от остальных графов, названия городов в нем не обязаны быть уникальными:
+     * getCity(name) и getOrCreateCity(name) возвращают первый город с этим названием,
+     * а каждый вызов конструктора City создает новый город.
+     * Граф хранит свои города до конца работы программы.
+     */
+    public static RoadGraph getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * true, если граф создан через createConcurrent().
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    // Регистрирует город и возвращает его идентификатор
+    int register(City city) {
+        if (city.getName() == null) {
+            throw new IllegalArgumentException("Название города не может быть null");
+        }
+        lockStructure();
+        try {
+            if (citiesByName.putIfAbsent(city.getName(), city) != null && uniqueNames) {
+                throw new IllegalArgumentException("Город " + city.getName() + " уже существует в графе");
+            }
+            int id = size;
+            if (id == cities.length) {
+                grow(id * 2);
+            }
+            cities[id] = city;
+            adjacency[id] = Adjacency.NONE;
+            xs[id] = Double.NaN;
+            ys[id] = Double.NaN;
+            connectivity.add(id);
+            // Город становится виден читателям только после заполнения всех его полей
+            size = id + 1;
+            // Новый город без дорог не меняет уже найденные маршруты, версия не увеличивается
+            return id;
+        } finally {
+            unlockStructure();
+        }
+    }
+
+    /**
+     * Заранее выделяет место под capacity городов, чтобы массовая загрузка
+     * не копировала массивы при каждом удвоении.
+     */
+    void ensureCapacity(int capacity) {
+        lockStructure();
+        try {
+            if (capacity > cities.length) {
+                if (!concurrent && citiesByName.isEmpty()) {
+                    citiesByName = new HashMap<>(capacity * 4 / 3 + 1);
+                }
+                grow(capacity);
+            }
+        } finally {
+            unlockStructure();
+        }
+    }
+
+    // Новые массивы публикуются после копирования, читатели видят либо старые, либо новые
+    private void grow(int capacity) {
+        cities = Arrays.copyOf(cities, capacity);
+        adjacency = Arrays.copyOf(adjacency, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+    }
+
+    /**
+     * Загружает дороги сразу в формате CSR в граф, где еще нет ни одной дороги.
+     * Массивы становятся текущим снимком без повторной сборки,
+     * а списки смежности городов копируются из них по одному массиву на город.
+     * @throws IllegalArgumentException если дороги не образуют корректный граф (см. checkRoads);
+     * тогда граф не изменяется
+     */
+    void loadRoads(int[] roadOffsets, int[] roadTargets, int[] roadCosts) {
+        lockStructure();
+        try {
+            if (roadCount.get() != 0) {
+                throw new IllegalStateException("Дороги можно загрузить только в граф без дорог");
+            }
+            int size = this.size;
+            if (roadOffsets.length != size + 1 || roadOffsets[0] != 0
+                    || roadOffsets[size] != roadTargets.length || roadTargets.length != roadCosts.length
+                    || roadTargets.length % 2 != 0) {
+                throw new IllegalArgumentException("Некорректное CSR-представление дорог");
+            }
+            checkRoads(size, roadOffsets, roadTargets, roadCosts);
+            for (int id = 0; id < size; id++) {
+                int from = roadOffsets[id];
+                int to = roadOffsets[id + 1];
+                adjacency[id] = new Adjacency(
+                        Arrays.copyOfRange(roadTargets, from, to), Arrays.copyOfRange(roadCosts, from, to), to - from);
+            }
+            roadCount.set(roadTargets.length / 2);
+            connectivity.invalidate();
+            long currentRoads = roadVersion.incrementAndGet();
+            long current = version.incrementAndGet();
+
+            COMPILED.setRelease(this, new CompiledGraph(current, currentRoads, size, roadOffsets, roadTargets, roadCosts,
+                    Arrays.copyOf(xs, size), Arrays.copyOf(ys, size), locatedCount.get() == size));
+            for (RoadListener listener : listeners) {
+                listener.roadsChanged();
+            }
+        } finally {
+            unlockStructure();
+        }
+        afterBulkUpdate();
+    }
+
+    /**
+     * Проверяет CSR-представление дорог за O(V + E): смещения не убывают, соседи
+     * существуют, нет петель, повторных дорог и отрицательных стоимостей,
+     * и каждая дорога записана в обе стороны с одинаковой стоимостью -
+     * то же, что гарантирует addRoad.
+     */
+    private static void checkRoads(int size, int[] roadOffsets, int[] roadTargets, int[] roadCosts) {
+        if (roadOffsets.length != size + 1 || roadOffsets[0] != 0
+                || roadOffsets[size] != roadTargets.length || roadTargets.length != roadCosts.length
+                || roadTargets.length % 2 != 0) {
+            throw new IllegalArgumentException("Некорректное CSR-представление дорог");
+        }
+        // Обратные дороги: сколько дорог ведет в каждый город
+        int[] incoming = new int[size + 1];
+        for (int id = 0; id < size; id++) {
+            int from = roadOffsets[id];
+            int to = roadOffsets[id + 1];
+            if (to < from) {
+                throw new IllegalArgumentException("Некорректное CSR-представление дорог");
+            }
+            for (int edge = from; edge < to; edge++) {
+                if (roadTargets[edge] < 0 || roadTargets[edge] >= size || roadTargets[edge] == id
+                        || roadCosts[edge] < 0) {
+                    throw new IllegalArgumentException("Некорректная дорога из города " + id);
+                }
+                incoming[roadTargets[edge] + 1]++;
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            if (incoming[id + 1] != roadOffsets[id + 1] - roadOffsets[id]) {
+                throw new IllegalArgumentException("Дороги города " + id + " записаны не в обе стороны");
+            }
+            incoming[id + 1] += incoming[id];
+        }
+        // Транспонированный CSR: для каждого города - города и стоимости дорог, ведущих в него
+        int[] sources = new int[roadTargets.length];
+        int[] sourceCosts = new int[roadTargets.length];
+        int[] next = Arrays.copyOf(incoming, size);
+        for (int id = 0; id < size; id++) {
+            for (int edge = roadOffsets[id]; edge < roadOffsets[id + 1]; edge++) {
+                int slot = next[roadTargets[edge]]++;
+                sources[slot] = id;
+                sourceCosts[slot] = roadCosts[edge];
+            }
+        }
+        // Исходящие дороги города отмечаются в seen; при равном числе дорог без повторов
+        // совпадение входящих с отмеченными означает, что каждая дорога записана в обе стороны
+        int[] seen = new int[size];
+        int[] seenCosts = new int[size];
+        for (int id = 0; id < size; id++) {
+            int stamp = id + 1;
+            for (int edge = roadOffsets[id]; edge < roadOffsets[id + 1]; edge++) {
+                if (seen[roadTargets[edge]] == stamp) {
+                    throw new IllegalArgumentException("Повторная дорога между городами "
+                            + id + " и " + roadTargets[edge]);
+                }
+                seen[roadTargets[edge]] = stamp;
+                seenCosts[roadTargets[edge]] = roadCosts[edge];
+            }
+            for (int slot = incoming[id]; slot < incoming[id + 1]; slot++) {
+                if (seen[sources[slot]] != stamp || seenCosts[sources[slot]] != sourceCosts[slot]) {
+                    throw new IllegalArgumentException("Дорога между городами " + sources[slot] + " и " + id
+                            + " записана не в обе стороны или с разной стоимостью");
+                }
+            }
+        }
+    }
+
+    /**
+     * Добавляет двустороннюю дорогу. Если дорога уже существует, граф не меняется.
+     * Обе стороны дороги публикуются под блокировками обоих городов,
+     * поэтому другие писатели не видят дорогу, добавленную наполовину.
+     * @return true, если дорога была добавлена
+     */
+    boolean addRoad(int from, int to, int cost) {
+        if (from == to) {
+            return false;
+        }
+        lockRoad(from, to);
+        try {
+            Adjacency fromRoads = adjacency(from);
+            if (fromRoads.indexOf(to) >= 0) {
+                return false;
+            }
+            // Индекс связности объединяется до публикации дороги: так он никогда
+            // не считает несвязанными города, между которыми путь уже виден
+            connectivity.union(from, to);
+            ADJACENCY.setRelease(adjacency, from, fromRoads.with(to, cost));
+            ADJACENCY.setRelease(adjacency, to, adjacency(to).with(from, cost));
+            roadCount.incrementAndGet();
+            roadVersion.incrementAndGet();
+            version.incrementAndGet();
+            for (RoadListener listener : listeners) {
+                listener.roadAdded(from, to, cost);
+            }
+            return true;
+        } finally {
+            unlockRoad(from, to);
+        }
+    }
+
+    /**
+     * Пакетно добавляет count двусторонних дорог from[i] - to[i] со стоимостью cost[i].
+     * Сначала считает, сколько дорог добавится каждому городу, и один раз
+     * расширяет его список смежности, затем вставляет дороги
+     * без промежуточных копирований и публикует новые списки.
+     * Петли и уже существующие дороги пропускаются, версия графа увеличивается один раз.
+     * Иерархию сжатия не перестраивает: пакетов обычно много (см. RoadImporter),
+     * и после последнего вызывающий код вызывает afterBulkUpdate().
+     * @return число добавленных дорог
+     */
+    int addRoads(int[] from, int[] to, int[] cost, int count) {
+        lockStructure();
+        try {
+            if (pendingDegrees.length < size) {
+                pendingDegrees = new int[cities.length];
+                pendingAdjacency = new Adjacency[cities.length];
+            }
+            for (int i = 0; i < count; i++) {
+                if (from[i] != to[i]) {
+                    pendingDegrees[from[i]]++;
+                    pendingDegrees[to[i]]++;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                reserve(from[i]);
+                reserve(to[i]);
+            }
+
+            int added = 0;
+            for (int i = 0; i < count; i++) {
+                Adjacency fromRoads = pendingAdjacency[from[i]];
+                if (from[i] != to[i] && fromRoads.indexOf(to[i]) < 0) {
+                    connectivity.union(from[i], to[i]);
+                    append(fromRoads, to[i], cost[i]);
+                    append(pendingAdjacency[to[i]], from[i], cost[i]);
+                    added++;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                publish(from[i]);
+                publish(to[i]);
+            }
+            if (added > 0) {
+                roadCount.addAndGet(added);
+                roadVersion.incrementAndGet();
+                version.incrementAndGet();
+                for (RoadListener listener : listeners) {
+                    listener.roadsChanged();
+                }
+            }
+            return added;
+        } finally {
+            unlockStructure();
+        }
+    }
+
+    // Готовит неопубликованную копию списка смежности с местом под ожидаемые новые дороги
+    private void reserve(int id) {
+        int pending = pendingDegrees[id];
+        if (pending == 0) {
+            return;
+        }
+        pendingDegrees[id] = 0;
+        Adjacency roads = adjacency(id);
+        int required = roads.degree + pending;
+        if (required > roads.targets.length) {
+            int capacity = Math.max(required, roads.targets.length * 3 / 2);
+            pendingAdjacency[id] = new Adjacency(Arrays.copyOf(roads.targets, capacity),
+                    Arrays.copyOf(roads.costs, capacity), roads.degree);
+        } else {
+            pendingAdjacency[id] = new Adjacency(roads.targets, roads.costs, roads.degree);
+        }
+    }
+
+    private static void append(Adjacency roads, int to, int cost) {
+        roads.targets[roads.degree] = to;
+        roads.costs[roads.degree] = cost;
+        roads.degree++;
+    }
+
+    private void publish(int id) {
+        Adjacency roads = pendingAdjacency[id];
+        if (roads != null) {
+            pendingAdjacency[id] = null;
+            ADJACENCY.setRelease(adjacency, id, roads);
+        }
+    }
+
+    /**
+     * Удаляет двустороннюю дорогу.
+     * @return true, если дорога существовала
+     */
+    boolean removeRoad(int from, int to) {
+        if (from == to) {
+            return false;
+        }
+        lockRoad(from, to);
+        try {
+            Adjacency fromRoads = adjacency(from);
+            int index = fromRoads.indexOf(to);
+            if (index < 0) {
+                return false;
+            }
+            Adjacency toRoads = adjacency(to);
+            ADJACENCY.setRelease(adjacency, from, fromRoads.without(index));
+            ADJACENCY.setRelease(adjacency, to, toRoads.without(toRoads.indexOf(from)));
+            connectivity.invalidate();
+            roadCount.decrementAndGet();
+            roadVersion.incrementAndGet();
+            version.incrementAndGet();
+            for (RoadListener listener : listeners) {
+                listener.roadRemoved(from, to);
+            }
+            return true;
+        } finally {
+            unlockRoad(from, to);
+        }
+    }
+
+    // Задает координаты города, NaN означает отсутствие координат
+    void setLocation(int id, double x, double y) {
+        lockRoad(id, id);
+        try {
+            boolean wasLocated = hasLocation(id);
+            xs[id] = x;
+            ys[id] = y;
+            if (wasLocated != hasLocation(id)) {
+                locatedCount.addAndGet(wasLocated ? -1 : 1);
+            }
+            if (wasLocated) {
+                spatial.invalidate();
+            } else if (hasLocation(id)) {
+                spatial.located(id);
+            }
+            version.incrementAndGet();
+        } finally {
+            unlockRoad(id, id);
+        }
+    }
+
+    boolean hasLocation(int id) {
+        return !Double.isNaN(xs[id]);
+    }
+
+    double getX(int id) {
+        return xs[id];
+    }
+
+    double getY(int id) {
+        return ys[id];
+    }
+
+    void addListener(RoadListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(RoadListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Текущий неизменяемый список дорог города. Читается без блокировок.
+     */
+    Adjacency adjacency(int id) {
+        return (Adjacency) ADJACENCY.getAcquire(adjacency, id);
+    }
+
+    /**
+     * Возвращает стоимость дороги между городами или -1, если дороги нет.
+     */
+    int getCost(int from, int to) {
+        Adjacency roads = adjacency(from);
+        int index = roads.indexOf(to);
+        return index < 0 ? -1 : roads.costs[index];
+    }
+
+    // Блокировки писателя одной дороги: общая structure и полосы обоих городов по возрастанию номера
+    private void lockRoad(int from, int to) {
+        if (!concurrent) {
+            return;
+        }
+        structure.readLock().lock();
+        int first = from & (STRIPES - 1);
+        int second = to & (STRIPES - 1);
+        if (first > second) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        stripes[first].lock();
+        if (second != first) {
+            stripes[second].lock();
+        }
+        activeWriters.incrementAndGet();
+    }
+
+    private void unlockRoad(int from, int to) {
+        if (!concurrent) {
+            return;
+        }
+        activeWriters.decrementAndGet();
+        int first = from & (STRIPES - 1);
+        int second = to & (STRIPES - 1);
+        if (second != first) {
+            stripes[second].unlock();
+        }
+        stripes[first].unlock();
+        structure.readLock().unlock();
+    }
+
+    private void lockStructure() {
+        if (concurrent) {
+            structure.writeLock().lock();
+            activeWriters.incrementAndGet();
+        }
+    }
+
+    private void unlockStructure() {
+        if (concurrent) {
+            activeWriters.decrementAndGet();
+            structure.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает снимок графа, собранный для текущей версии, при необходимости собирая его.
+     * Сложность сборки: O(V + E)
+     */
+    CompiledGraph compile() {
+        return compile(size);
+    }
+
+    /**
+     * То же, что compile(), но снимок должен содержать только города с идентификаторами
+     * меньше cities. В конкурентном режиме снимок собирает один поток; остальные в это время
+     * получают предыдущий снимок, если в нем есть эти города, иначе ждут.
+     */
+    CompiledGraph compile(int cities) {
+        CompiledGraph current = (CompiledGraph) COMPILED.getAcquire(this);
+        if (isCurrent(current)) {
+            return current;
+        }
+        if (!concurrent) {
+            current = CompiledGraph.build(version.get(), roadVersion.get(), size, adjacency, Arrays.copyOf(xs, size),
+                    Arrays.copyOf(ys, size), locatedCount.get() == size);
+            COMPILED.setRelease(this, current);
+            return current;
+        }
+
+        if (!compileLock.tryLock()) {
+            if (current.size >= cities) {
+                return current;
+            }
+            compileLock.lock();
+        }
+        try {
+            current = (CompiledGraph) COMPILED.getAcquire(this);
+            if (isCurrent(current)) {
+                return current;
+            }
+            current = null;
+            for (int attempt = 0; attempt < OPTIMISTIC_CAPTURES && current == null; attempt++) {
+                current = capture(false);
+            }
+            if (current == null) {
+                current = capture(true);
+            }
+            COMPILED.setRelease(this, current);
+            return current;
+        } finally {
+            compileLock.unlock();
+        }
+    }
+
+    /**
+     * Копирует состояние графа и собирает по нему снимок. Под эксклюзивной блокировкой
+     * (locked = true) только копируется состояние, O(V), а сам CSR собирается уже без нее.
+     * Без блокировки копия проверяется: если во время копирования работал писатель,
+     * она могла захватить половину дороги, и метод возвращает null.
+     * Писатель увеличивает version до того, как уменьшает activeWriters,
+     * поэтому писатель, закончивший во время копирования, тоже будет замечен.
+     */
+    private CompiledGraph capture(boolean locked) {
+        long capturedVersion;
+        long capturedRoadVersion;
+        int capturedSize;
+        Adjacency[] capturedAdjacency;
+        double[] capturedXs;
+        double[] capturedYs;
+        boolean allLocated;
+        if (locked) {
+            structure.writeLock().lock();
+        }
+        try {
+            capturedVersion = version.get();
+            capturedRoadVersion = roadVersion.get();
+            if (!locked && activeWriters.get() != 0) {
+                return null;
+            }
+            capturedSize = size;
+            capturedAdjacency = Arrays.copyOf(adjacency, capturedSize);
+            capturedXs = Arrays.copyOf(xs, capturedSize);
+            capturedYs = Arrays.copyOf(ys, capturedSize);
+            allLocated = locatedCount.get() == capturedSize;
+            if (!locked) {
+                // Элементы массивов прочитаны обычным чтением; барьер упорядочивает их
+                // с проверкой ниже: увидев запись писателя, увидим и его activeWriters
+                VarHandle.acquireFence();
+                if (activeWriters.get() != 0 || version.get() != capturedVersion) {
+                    return null;
+                }
+            }
+        } finally {
+            if (locked) {
+                structure.writeLock().unlock();
+            }
+        }
+        return CompiledGraph.build(capturedVersion, capturedRoadVersion, capturedSize, capturedAdjacency,
+                capturedXs, capturedYs, allLocated);
+    }
+
+    private boolean isCurrent(CompiledGraph snapshot) {
+        return snapshot.version == version.get() && snapshot.size == size;
+    }
+
+    public City getCity(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Нет города с идентификатором " + id);
+        }
+        return cities[id];
+    }
+
+    /**
+     * Строит иерархию сжатия для режима Route.Mode.CONTRACTION_HIERARCHY.
+     * Построение дорогое (порядка секунд на сотни тысяч городов), поэтому
+     * иерархия не перестраивается после каждого изменения дороги: после первого вызова
+     * она перестраивается автоматически только в конце пакетной загрузки дорог
+     * (RoadImporter, GraphSnapshot.load), а после одиночных addRoad/removeRoad
+     * этот метод нужно вызвать снова. Запросы маршрутов иерархию не перестраивают:
+     * пока она устарела, они ищут путь двунаправленным алгоритмом Дейкстры и не ждут построения.
+     * Иерархия зависит только от дорог, изменение координат городов ее не делает устаревшей.
+     */
+    public void prepareContractionHierarchy() {
+        synchronized (hierarchyLock) {
+            if (!hasCurrentContractionHierarchy()) {
+                hierarchy = ContractionHierarchy.build(compile());
+            }
+        }
+    }
+
+    /**
+     * Завершение пакетного изменения дорог: если иерархия сжатия уже строилась,
+     * перестраивает ее для новых дорог. Вызывается без блокировок графа.
+     */
+    void afterBulkUpdate() {
+        if (hierarchy != null) {
+            prepareContractionHierarchy();
+        }
+    }
+
+    /**
+     * true, если иерархия сжатия построена для текущего состояния дорог.
+     */
+    public boolean hasCurrentContractionHierarchy() {
+        return getContractionHierarchy() != null;
+    }
+
+    /**
+     * Иерархия, построенная для текущего состояния дорог, или null, если она устарела.
+     */
+    ContractionHierarchy getContractionHierarchy() {
+        ContractionHierarchy current = hierarchy;
+        return current != null && current.getRoadVersion() == roadVersion.get() && current.size() == size
+                ? current : null;
+    }
+
+    /**
+     * true, если между городами есть путь по дорогам.
+     * Отвечает по индексу компонент связности без поиска маршрута;
+     * после удаления дорог индекс один раз пересобирается за O(V + E).
+     * Пересборка не блокирует граф; пока она идет в другом потоке, ответ
+     * дается по устаревшему индексу, который может ошибаться только в сторону true.
+     */
+    public boolean isConnected(City first, City second) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException("Город не может быть null");
+        }
+        return first.getGraph() == this && second.getGraph() == this
+                && isConnected(first.getId(), second.getId());
+    }
+
+    boolean isConnected(int first, int second) {
+        if (connectivity.isStale()) {
+            connectivity.tryRebuild(this);
+        }
+        return connectivity.connected(first, second);
+    }
+
+    /**
+     * Количество компонент связности (город без дорог - отдельная компонента).
+     */
+    public int getComponentCount() {
+        return connectivity().getComponentCount();
+    }
+
+    /**
+     * Число городов в компоненте связности, которой принадлежит город.
+     */
+    public int getComponentSize(City city) {
+        if (city == null || city.getGraph() != this) {
+            throw new IllegalArgumentException("Город должен принадлежать этому графу");
+        }
+        return connectivity().getComponentSize(city.getId());
+    }
+
+    // Индекс связности, пересобранный при необходимости (без блокировок графа)
+    private ConnectivityIndex connectivity() {
+        if (connectivity.isStale()) {
+            connectivity.rebuild(this);
+        }
+        return connectivity;
+    }
+
+    /**
+     * Дожидается писателей дорог, начавших изменение до вызова: после возврата
+     * их изменения опубликованы в списках смежности. Новых писателей не задерживает.
+     */
+    void awaitRoadWriters() {
+        if (!concurrent) {
+            return;
+        }
+        structure.readLock().lock();
+        try {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+                stripe.unlock();
+            }
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    /**
+     * Город с координатами, ближайший к точке, или null, если координат нет ни у одного города.
+     * Запросы по координатам отвечают по k-d дереву, которое дополняется
+     * новыми городами при следующем запросе и строится заново после перемещения городов.
+     * Сложность: O(log² n)
+     */
+    public City getNearestCity(Point point) {
+        checkPoint(point);
+        return spatial.nearest(this, point);
+    }
+
+    /**
+     * До k городов с координатами, ближайших к точке, по возрастанию расстояния.
+     */
+    public List<City> getNearestCities(Point point, int k) {
+        checkPoint(point);
+        return spatial.nearest(this, point, k);
+    }
+
+    /**
+     * Города на расстоянии не больше radius от точки, в произвольном порядке.
+     */
+    public List<City> getCitiesWithin(Point center, double radius) {
+        checkPoint(center);
+        return spatial.withinRadius(this, center, radius);
+    }
+
+    private static void checkPoint(Point point) {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+    }
+
+    /**
+     * Возвращает город с указанным названием или null, если его нет в графе.
+     */
+    public City getCity(String name) {
+        return citiesByName.get(name);
+    }
+
+    /**
+     * Возвращает город с указанным названием, создавая его при необходимости.
+     * Так одно название всегда соответствует одному объекту City.
+     */
+    public City getOrCreateCity(String name) {
+        City city = citiesByName.get(name);
+        if (city != null) {
+            return city;
+        }
+        lockStructure();
+        try {
+            city = citiesByName.get(name);
+            return city != null ? city : new City(name, this);
+        } finally {
+            unlockStructure();
+        }
+    }
+
+    /**
+     * Кэш маршрутов, найденных в этом графе.
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Статистика запросов маршрутов в этом графе.
+     */
+    public RouteMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Количество городов в графе.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Количество двусторонних дорог в графе.
+     */
+    public int getRoadCount() {
+        return roadCount.get();
+    }
+
+    /**
+     * Номер версии графа, увеличивается при каждом изменении.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+}
@@ -0,0 +1,309 @@
+package ru.anyanov.city;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Потоковый импорт дорог из списка ребер вида "cityA,cityB,cost" (по одной дороге в строке).
+ *
+ * Файл читается через канал NIO блоками фиксированного размера и разбирается
+ * прямо в байтах, без построчных String. Названия городов интернируются
+ * в таблице, которая ищет по байтам, поэтому String создается только
+ * для нового города. Дороги накапливаются в пакеты и вставляются через
+ * RoadGraph.addRoads; построенная раньше иерархия сжатия графа перестраивается
+ * один раз, в конце импорта. Память импорта ограничена буфером и пакетом
+ * и не зависит от размера файла.
+ *
+ * Пустые строки и строки, начинающиеся с '#', пропускаются; пробелы вокруг полей игнорируются.
+ */
+public final class RoadImporter {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+    private final RoadGraph graph;
+    private final int bufferSize;
+    private final int batchSize;
+
+    public RoadImporter(RoadGraph graph) {
+        this(graph, DEFAULT_BUFFER_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    public RoadImporter(RoadGraph graph, int bufferSize, int batchSize) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Граф дорог не может быть null");
+        }
+        if (bufferSize < 64 || batchSize < 1) {
+            throw new IllegalArgumentException("Слишком маленький буфер или пакет импорта");
+        }
+        this.graph = graph;
+        this.bufferSize = bufferSize;
+        this.batchSize = batchSize;
+    }
+
+    public Statistics importFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return importFrom(channel);
+        }
+    }
+
+    /**
+     * Читает дороги из канала до его конца. Канал не закрывается.
+     */
+    public Statistics importFrom(ReadableByteChannel channel) throws IOException {
+        return new Session().run(channel);
+    }
+
+    /**
+     * Итоги одного импорта.
+     */
+    public static final class Statistics {
+        private final long lines;
+        private final long roadsRead;
+        private final long roadsAdded;
+        private final int citiesCreated;
+        private final long elapsedNanos;
+
+        private Statistics(long lines, long roadsRead, long roadsAdded, int citiesCreated, long elapsedNanos) {
+            this.lines = lines;
+            this.roadsRead = roadsRead;
+            this.roadsAdded = roadsAdded;
+            this.citiesCreated = citiesCreated;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getLines() { return lines; }
+        public long getRoadsRead() { return roadsRead; }
+        public long getRoadsAdded() { return roadsAdded; }
+        // Дороги, которые уже были в графе или повторились в файле
+        public long getRoadsSkipped() { return roadsRead - roadsAdded; }
+        public int getCitiesCreated() { return citiesCreated; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        /**
+         * Скорость импорта: прочитанных дорог в секунду.
+         */
+        public double getRoadsPerSecond() {
+            return elapsedNanos == 0 ? 0 : roadsRead * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Импорт: строк " + lines + ", дорог прочитано " + roadsRead +
+                    ", добавлено " + roadsAdded + ", новых городов " + citiesCreated +
+                    ", " + Math.round(getRoadsPerSecond()) + " дорог/с";
+        }
+    }
+
+    // Состояние одного импорта
+    private final class Session {
+        private final byte[] data = new byte[bufferSize];
+        private final int[] batchFrom = new int[batchSize];
+        private final int[] batchTo = new int[batchSize];
+        private final int[] batchCost = new int[batchSize];
+        private int batchCount;
+        private final NameTable names = new NameTable();
+
+        private long lines;
+        private long roadsRead;
+        private long roadsAdded;
+        private final int initialCities = graph.size();
+
+        Statistics run(ReadableByteChannel channel) throws IOException {
+            long started = System.nanoTime();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int filled = 0;
+            boolean eof = false;
+
+            while (!eof) {
+                buffer.limit(data.length).position(filled);
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    filled += read;
+                }
+
+                // Разбираем все полные строки в буфере
+                int lineStart = 0;
+                for (int i = 0; i < filled; i++) {
+                    if (data[i] == '\n') {
+                        parseLine(lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                if (eof) {
+                    if (lineStart < filled) {
+                        parseLine(lineStart, filled);
+                    }
+                    break;
+                }
+
+                // Незаконченную строку переносим в начало буфера
+                System.arraycopy(data, lineStart, data, 0, filled - lineStart);
+                filled -= lineStart;
+                if (filled == data.length) {
+                    throw new IOException("Строка " + (lines + 1) + " длиннее буфера импорта (" + bufferSize + " байт)");
+                }
+            }
+
+            flush();
+            graph.afterBulkUpdate();
+            return new Statistics(lines, roadsRead, roadsAdded, graph.size() - initialCities,
+                    System.nanoTime() - started);
+        }
+
+        private void parseLine(int from, int to) throws IOException {
+            lines++;
+            if (to > from && data[to - 1] == '\r') {
+                to--;
+            }
+            from = skipSpaces(from, to);
+            if (from == to || data[from] == '#') {
+                return;
+            }
+
+            int firstComma = indexOf(',', from, to);
+            int secondComma = firstComma < 0 ? -1 : indexOf(',', firstComma + 1, to);
+            if (secondComma < 0) {
+                throw new IOException("Строка " + lines + ": ожидается формат cityA,cityB,cost");
+            }
+
+            int fromCity = city(from, firstComma);
+            int toCity = city(firstComma + 1, secondComma);
+            int cost = parseCost(secondComma + 1, to);
+
+            batchFrom[batchCount] = fromCity;
+            batchTo[batchCount] = toCity;
+            batchCost[batchCount] = cost;
+            batchCount++;
+            roadsRead++;
+            if (batchCount == batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batchCount > 0) {
+                roadsAdded += graph.addRoads(batchFrom, batchTo, batchCost, batchCount);
+                batchCount = 0;
+            }
+        }
+
+        private int city(int from, int to) throws IOException {
+            from = skipSpaces(from, to);
+            while (to > from && data[to - 1] == ' ') {
+                to--;
+            }
+            if (from == to) {
+                throw new IOException("Строка " + lines + ": пустое название города");
+            }
+            return names.idOf(data, from, to);
+        }
+
+        private int parseCost(int from, int to) throws IOException {
+            from = skipSpaces(from, to);
+            while (to > from && data[to - 1] == ' ') {
+                to--;
+            }
+            if (from == to) {
+                throw new IOException("Строка " + lines + ": не указана стоимость дороги");
+            }
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new IOException("Строка " + lines + ": стоимость должна быть неотрицательным целым числом");
+                }
+                value = value * 10 + digit;
+                if (value > Integer.MAX_VALUE) {
+                    throw new IOException("Строка " + lines + ": слишком большая стоимость дороги");
+                }
+            }
+            return (int) value;
+        }
+
+        private int skipSpaces(int from, int to) {
+            while (from < to && data[from] == ' ') {
+                from++;
+            }
+            return from;
+        }
+
+        private int indexOf(char symbol, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (data[i] == symbol) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Хеш-таблица с открытой адресацией: байты названия -> идентификатор города.
+     * Поиск не создает объектов; String создается только для нового названия.
+     */
+    private final class NameTable {
+        private byte[][] keys = new byte[1024][];
+        private int[] ids = new int[1024];
+        private int count;
+
+        int idOf(byte[] source, int from, int to) {
+            int hash = hash(source, from, to);
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    byte[] name = Arrays.copyOfRange(source, from, to);
+                    int id = graph.getOrCreateCity(new String(name, StandardCharsets.UTF_8)).getId();
+                    insert(slot, name, id);
+                    return id;
+                }
+                if (Arrays.equals(key, 0, key.length, source, from, to)) {
+                    return ids[slot];
+                }
+            }
+        }
+
+        private void insert(int slot, byte[] name, int id) {
+            keys[slot] = name;
+            ids[slot] = id;
+            if (++count * 2 > keys.length) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            byte[][] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new byte[oldKeys.length * 2][];
+            ids = new int[oldKeys.length * 2];
+            graph.ensureCapacity(graph.size() + count);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = hash(oldKeys[i], 0, oldKeys[i].length) & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+
+        private int hash(byte[] source, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + source[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -1,14 +1,32 @@
 package ru.anyanov.city;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Route {
+    /**
+     * Критерий, по которому выбирается маршрут.
+     */
+    public enum Mode {
+        FEWEST_CITIES, // Через наименьшее число городов (BFS)
+        CHEAPEST,      // С наименьшей суммарной стоимостью дорог (Дейкстра)
+        A_STAR,        // С наименьшей стоимостью, A* с эвристикой по координатам городов
+        CONTRACTION_HIERARCHY // С наименьшей стоимостью, по иерархии сжатия графа
+    }
+
     private City start;
     private City end;
+    private Mode mode;
 
     public Route(City start, City end) {
+        this(start, end, Mode.FEWEST_CITIES);
+    }
+
+    public Route(City start, City end, Mode mode) {
         setStart(start);
         setEnd(end);
+        setMode(mode);
     }
 
     public void setStart(City start) {
@@ -25,64 +43,236 @@ public class Route {
         this.end = end;
     }
 
+    public void setMode(Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Режим поиска маршрута не может быть null");
+        }
+        this.mode = mode;
+    }
+
     public City getStart() { return start; }
     public City getEnd() { return end; }
+    public Mode getMode() { return mode; }
 
     /**
      * Возвращает массив городов, представляющий маршрут из начала в конец.
-     * Используется алгоритм BFS (поиск в ширину) для нахождения пути
-     * через наименьшее число городов.
-     * Сложность: O(V + E), где V - количество вершин, E - количество рёбер
+     * В режиме FEWEST_CITIES используется двунаправленный BFS (путь через наименьшее
+     * число городов), в режиме CHEAPEST - двунаправленный алгоритм Дейкстры
+     * (путь с наименьшей стоимостью), в режиме A_STAR - алгоритм A*, который находит
+     * путь той же стоимости, но благодаря координатам городов просматривает меньше вершин,
+     * в режиме CONTRACTION_HIERARCHY - запрос по заранее построенной иерархии сжатия
+     * (см. RoadGraph.prepareContractionHierarchy()), самый быстрый для неизменяемого графа.
+     * Иерархия перестраивается в конце пакетной загрузки дорог или явным вызовом,
+     * но не запросом: пока после изменения дорог она не построена заново,
+     * этот режим работает как CHEAPEST.
+     * Двунаправленные поиски идут навстречу друг другу от начала и от конца
+     * и останавливаются, как только кратчайший путь гарантированно найден.
+     * Поиск идет по CSR-снимку графа, поэтому на каждое ребро
+     * не создается ни одного объекта. Найденные пути сохраняются в RouteCache графа,
+     * поэтому повторные запросы (в том числе toString() и getCost()) не повторяют поиск,
+     * пока граф не изменится. Если города в разных компонентах связности,
+     * пустой массив возвращается сразу, по индексу связности графа.
+     * Для графа из RoadGraph.createConcurrent() метод можно
+     * вызывать из многих потоков одновременно с изменением дорог.
+     * Каждый запрос учитывается в статистике графа (RoadGraph.getMetrics()).
+     * Сложность: O(V + E) для BFS и O((V + E) log V) для Дейкстры
      */
     public City[] getRoute() {
+        RouteMetrics.Recorder recorder = start.getGraph().getMetrics().recorder();
+        if (recorder == null) {
+            return findRoute(null);
+        }
+        boolean timed = recorder.nextQueryTimed();
+        long started = timed ? System.nanoTime() : 0;
+        City[] route = findRoute(recorder);
+        recorder.recordQuery(mode, route.length, timed ? System.nanoTime() - started : -1);
+        return route;
+    }
+
+    // recorder - счетчики статистики потока или null, если она выключена
+    private City[] findRoute(RouteMetrics.Recorder recorder) {
         // Если начало и конец совпадают
-        if (start.equals(end)) {
+        if (start == end) {
             return new City[]{start};
         }
 
-        // Алгоритм BFS для поиска кратчайшего пути по количеству городов
-        Map<City, City> previous = new HashMap<>(); // Для восстановления пути
-        Queue<City> queue = new LinkedList<>();
-        Set<City> visited = new HashSet<>();
+        RoadGraph graph = start.getGraph();
+        if (graph != end.getGraph()) {
+            return new City[0]; // Города из разных графов не связаны дорогами
+        }
+        if (!graph.isConnected(start.getId(), end.getId())) {
+            return new City[0]; // Города в разных компонентах связности, поиск не нужен
+        }
 
-        queue.add(start);
-        visited.add(start);
-        previous.put(start, null);
+        CompiledGraph snapshot = graph.compile(Math.max(start.getId(), end.getId()) + 1);
+        RouteCache cache = graph.getRouteCache();
+        int[] path = cache.get(start.getId(), end.getId(), mode, snapshot.version);
+        if (path == null) {
+            path = find(graph, snapshot, start.getId(), end.getId(), recorder);
+            if (path == null) {
+                path = RouteCache.NO_ROUTE;
+            }
+            cache.put(start.getId(), end.getId(), mode, snapshot.version, path);
+        }
+        if (path.length == 0) {
+            return new City[0]; // Путь не найден
+        }
 
-        while (!queue.isEmpty()) {
-            City current = queue.poll();
+        City[] route = new City[path.length];
+        for (int i = 0; i < path.length; i++) {
+            route[i] = graph.getCity(path[i]);
+        }
+        return route;
+    }
 
-            // Проверяем всех соседей
-            for (City neighbor : current.getRoads().keySet()) {
-                if (!visited.contains(neighbor)) {
-                    visited.add(neighbor);
-                    previous.put(neighbor, current);
-                    queue.add(neighbor);
+    private int[] find(RoadGraph graph, CompiledGraph snapshot, int source, int target,
+                       RouteMetrics.Recorder recorder) {
+        RouteSearchContext context = PathFinder.context(snapshot);
+        int length = PathFinder.find(mode, graph, snapshot, context, source, target);
+        if (recorder != null) {
+            recorder.recordSearch(context.expanded, context.relaxed);
+        }
+        return length == 0 ? null : Arrays.copyOf(context.path, length);
+    }
 
-                    // Если нашли конечный город
-                    if (neighbor.equals(end)) {
-                        return buildPath(previous);
-                    }
-                }
+    /**
+     * Записывает маршрут из начала в конец в буфер buffer, начиная с индекса 0.
+     * Ищет так же, как getRoute(), но не обращается к кэшу маршрутов и в установившемся
+     * режиме не выделяет память: рабочие массивы поиска и сам путь хранятся
+     * в контексте поиска потока и переиспользуются между запросами.
+     * @return число городов маршрута, 0 если маршрут не найден; если буфер короче маршрута,
+     * в него ничего не записывается и возвращается длина маршрута со знаком минус
+     */
+    public int getRoute(City[] buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Буфер маршрута не может быть null");
+        }
+        RouteMetrics.Recorder recorder = start.getGraph().getMetrics().recorder();
+        if (recorder == null) {
+            return findRoute(buffer, null);
+        }
+        boolean timed = recorder.nextQueryTimed();
+        long started = timed ? System.nanoTime() : 0;
+        int length = findRoute(buffer, recorder);
+        recorder.recordQuery(mode, Math.abs(length), timed ? System.nanoTime() - started : -1);
+        return length;
+    }
+
+    private int findRoute(City[] buffer, RouteMetrics.Recorder recorder) {
+        if (start == end) {
+            if (buffer.length == 0) {
+                return -1;
             }
+            buffer[0] = start;
+            return 1;
+        }
+
+        RoadGraph graph = start.getGraph();
+        if (graph != end.getGraph() || !graph.isConnected(start.getId(), end.getId())) {
+            return 0;
+        }
+
+        CompiledGraph snapshot = graph.compile(Math.max(start.getId(), end.getId()) + 1);
+        RouteSearchContext context = PathFinder.context(snapshot);
+        int length = PathFinder.find(mode, graph, snapshot, context, start.getId(), end.getId());
+        if (recorder != null) {
+            recorder.recordSearch(context.expanded, context.relaxed);
+        }
+        if (length > buffer.length) {
+            return -length;
+        }
+        int[] path = context.path;
+        for (int i = 0; i < length; i++) {
+            buffer[i] = graph.getCity(path[i]);
+        }
+        return length;
+    }
+
+    /**
+     * Возвращает до k самых дешевых маршрутов без повторяющихся городов
+     * в порядке возрастания стоимости (алгоритм Йена). Первый маршрут - самый дешевый,
+     * остальные - альтернативы к нему. Режим поиска не учитывается, результаты не кэшируются.
+     * Все итерации используют общее состояние поиска (см. PathFinder.findKCheapest),
+     * поэтому k маршрутов обходятся намного дешевле k независимых поисков.
+     */
+    public List<Alternative> getAlternatives(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Число маршрутов должно быть положительным");
+        }
+        List<Alternative> alternatives = new ArrayList<>();
+        if (start == end) {
+            alternatives.add(new Alternative(new City[]{start}, 0));
+            return alternatives;
+        }
+
+        RoadGraph graph = start.getGraph();
+        if (graph != end.getGraph() || !graph.isConnected(start.getId(), end.getId())) {
+            return alternatives;
         }
 
-        return new City[0]; // Путь не найден
+        int[][] paths = new int[k][];
+        long[] costs = new long[k];
+        int count = PathFinder.findKCheapest(graph.compile(Math.max(start.getId(), end.getId()) + 1),
+                start.getId(), end.getId(), k, paths, costs);
+        for (int i = 0; i < count; i++) {
+            City[] cities = new City[paths[i].length];
+            for (int j = 0; j < cities.length; j++) {
+                cities[j] = graph.getCity(paths[i][j]);
+            }
+            alternatives.add(new Alternative(cities, costs[i]));
+        }
+        return alternatives;
     }
 
-    private City[] buildPath(Map<City, City> previous) {
-        List<City> path = new ArrayList<>();
-        City current = end;
+    /**
+     * Один из маршрутов, найденных getAlternatives().
+     */
+    public static final class Alternative {
+        private final City[] cities;
+        private final long cost;
 
-        // Восстанавливаем путь от конца к началу
-        while (current != null) {
-            path.add(current);
-            current = previous.get(current);
+        private Alternative(City[] cities, long cost) {
+            this.cities = cities;
+            this.cost = cost;
         }
 
-        // Разворачиваем путь, чтобы получить от начала к концу
-        Collections.reverse(path);
-        return path.toArray(new City[0]);
+        public City[] getCities() {
+            return cities.clone();
+        }
+
+        public long getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < cities.length; i++) {
+                sb.append(cities[i].getName());
+                if (i < cities.length - 1) {
+                    sb.append(" -> ");
+                }
+            }
+            return sb.append(" (стоимость: ").append(cost).append(")").toString();
+        }
+    }
+
+    /**
+     * Возвращает суммарную стоимость дорог маршрута, найденного getRoute(),
+     * или -1, если путь не найден.
+     */
+    public long getCost() {
+        City[] route = getRoute();
+        if (route.length == 0) {
+            return -1;
+        }
+
+        RoadGraph graph = start.getGraph();
+        long cost = 0;
+        for (int i = 1; i < route.length; i++) {
+            cost += graph.getCost(route[i - 1].getId(), route[i].getId());
+        }
+        return cost;
     }
 
     @Override
@@ -101,4 +291,4 @@ public class Route {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,210 @@
+package ru.anyanov.city;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный по размеру LRU-кэш найденных маршрутов графа.
+ * Ключ - пара идентификаторов городов и режим поиска, значение - путь
+ * в виде массива идентификаторов. Кэш сбрасывается, как только
+ * меняется версия графа (добавление или удаление дороги, смена координат).
+ *
+ * Кэш конкурентного графа разбит на сегменты по хешу ключа, каждый со своей
+ * блокировкой и своей частью емкости, поэтому потоки, ищущие разные маршруты,
+ * почти не конкурируют. Каждый сегмент помнит версию графа, для которой хранит
+ * маршруты: поиск по более старому снимку кэш не читает и не пополняет.
+ */
+public final class RouteCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    static final int CONCURRENT_SEGMENTS = 16;
+
+    // Значение для пар городов, между которыми пути нет
+    static final int[] NO_ROUTE = new int[0];
+
+    private final Segment[] segments;
+    private volatile int capacity;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    RouteCache(int segmentCount, int capacity) {
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+        setCapacity(capacity);
+    }
+
+    /**
+     * Возвращает путь, сохраненный для версии графа version,
+     * NO_ROUTE если пути нет, или null при промахе.
+     */
+    int[] get(int start, int end, Route.Mode mode, long version) {
+        int[] path = null;
+        if (capacity > 0) {
+            Key key = new Key(start, end, mode);
+            path = segmentFor(key).get(key, version);
+        }
+        if (path == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return path;
+    }
+
+    /**
+     * Сохраняет путь, найденный по снимку графа версии version.
+     */
+    void put(int start, int end, Route.Mode mode, long version, int[] path) {
+        if (capacity > 0) {
+            Key key = new Key(start, end, mode);
+            segmentFor(key).put(key, version, path);
+        }
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        return segments[((hash ^ (hash >>> 16)) & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * Задает максимальное число маршрутов в кэше; 0 отключает кэширование.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Размер кэша не может быть отрицательным");
+        }
+        this.capacity = capacity;
+        // Емкость делится между сегментами с округлением вверх
+        int segmentCapacity = (capacity + segments.length - 1) / segments.length;
+        for (Segment segment : segments) {
+            segment.setCapacity(segmentCapacity);
+        }
+    }
+
+    public int getCapacity() { return capacity; }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    // Число сбросов сегментов из-за изменения графа
+    public long getInvalidations() { return invalidations.sum(); }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "RouteCache{size=" + size() + "/" + capacity +
+                ", hits=" + getHits() + ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() + ", invalidations=" + getInvalidations() + "}";
+    }
+
+    // Часть кэша со своей блокировкой
+    private final class Segment {
+        private final Map<Key, int[]> entries;
+        private int capacity;
+        private long version;
+
+        Segment() {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                    if (size() > Segment.this.capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized int[] get(Key key, long version) {
+            return validate(version) ? entries.get(key) : null;
+        }
+
+        synchronized void put(Key key, long version, int[] path) {
+            if (validate(version)) {
+                entries.put(key, path);
+            }
+        }
+
+        // Сбрасывает сегмент при переходе к новой версии графа;
+        // false, если запрос идет по более старой версии, чем сохраненные маршруты
+        private boolean validate(long version) {
+            if (version > this.version) {
+                if (!entries.isEmpty()) {
+                    entries.clear();
+                    invalidations.increment();
+                }
+                this.version = version;
+            }
+            return version == this.version;
+        }
+
+        synchronized void setCapacity(int capacity) {
+            this.capacity = capacity;
+            Iterator<Map.Entry<Key, int[]>> iterator = entries.entrySet().iterator();
+            while (entries.size() > capacity) {
+                iterator.next();
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+    }
+
+    private static final class Key {
+        private final int start;
+        private final int end;
+        private final Route.Mode mode;
+
+        Key(int start, int end, Route.Mode mode) {
+            this.start = start;
+            this.end = end;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return start == other.start && end == other.end && mode == other.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * start + end) * 31 + mode.ordinal();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package ru.anyanov.city;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Статистика запросов маршрутов графа (Route.getRoute): число запросов, объем работы
+ * поисков (извлеченные из очереди города и просмотренные дороги), длина найденных
+ * маршрутов и распределение времени запроса.
+ *
+ * Статистику можно держать включенной постоянно: на поисках ее цена в пределах шума,
+ * а к попаданию в кэш маршрутов (порядка 150 нс) она добавляет десятки наносекунд
+ * (см. RouteMetricsBenchmark). Каждый поток пишет в собственные
+ * счетчики (Recorder) обычными записями, без атомарных операций и блокировок,
+ * а чтение складывает счетчики всех потоков. Время измеряется не у каждого
+ * запроса, а у каждого SAMPLE_INTERVAL-го запроса потока: вызов System.nanoTime()
+ * стоит десятки наносекунд, сравнимо с коротким поиском, а для процентилей
+ * достаточно выборки. Запросы, отвеченные из кэша или по индексу связности,
+ * учитываются как запросы, но не как поиски.
+ * Значения читаются без остановки потоков и при параллельных запросах
+ * согласованы между собой лишь приблизительно.
+ */
+public final class RouteMetrics implements RouteMetricsMBean {
+    /**
+     * Время измеряется у каждого SAMPLE_INTERVAL-го запроса потока (степень двойки).
+     */
+    public static final int SAMPLE_INTERVAL = 16;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Номера счетчиков в Recorder.counters
+    private static final int QUERIES = 0;
+    private static final int ROUTES_NOT_FOUND = 1;
+    private static final int PATH_CITIES = 2;
+    private static final int SEARCHES = 3;
+    private static final int NODES_EXPANDED = 4;
+    private static final int EDGES_RELAXED = 5;
+    private static final int LATENCY_TOTAL = 6;
+    private static final int MODE_QUERIES = 7; // Дальше по счетчику на каждый Route.Mode
+    private static final int COUNTERS = MODE_QUERIES + Route.Mode.values().length;
+
+    private volatile boolean enabled = true;
+    private ObjectName registeredName;
+
+    private final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(this::newRecorder);
+
+    // Все поля ниже защищены монитором this.
+    // Счетчики работающих потоков
+    private final List<Recorder> recorders = new ArrayList<>();
+    // Сумма счетчиков завершившихся потоков
+    private final long[] retiredCounters = new long[COUNTERS];
+    private final long[] retiredLatency = new long[LatencyHistogram.BUCKETS];
+    // Значения на момент reset(), вычитаются из сумм
+    private final long[] baselineCounters = new long[COUNTERS];
+    private final long[] baselineLatency = new long[LatencyHistogram.BUCKETS];
+
+    RouteMetrics() {
+    }
+
+    /**
+     * Счетчики текущего потока или null, если статистика выключена.
+     */
+    Recorder recorder() {
+        return enabled ? recorder.get() : null;
+    }
+
+    private synchronized Recorder newRecorder() {
+        retireFinished();
+        Recorder created = new Recorder(Thread.currentThread());
+        recorders.add(created);
+        return created;
+    }
+
+    /**
+     * Переносит счетчики завершившихся потоков в retiredCounters, чтобы список
+     * не рос с каждым новым потоком. Завершение потока, замеченное через isAlive(),
+     * гарантирует видимость всех его записей.
+     */
+    private void retireFinished() {
+        Iterator<Recorder> iterator = recorders.iterator();
+        while (iterator.hasNext()) {
+            Recorder finished = iterator.next();
+            if (!finished.owner.isAlive()) {
+                addTo(retiredCounters, finished.counters);
+                addTo(retiredLatency, finished.latency);
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void addTo(long[] total, long[] values) {
+        for (int i = 0; i < values.length; i++) {
+            total[i] += (long) LONGS.getOpaque(values, i);
+        }
+    }
+
+    // Суммы счетчиков всех потоков с момента создания
+    private long[] sum(long[] retired, boolean latency) {
+        retireFinished();
+        long[] total = retired.clone();
+        for (Recorder live : recorders) {
+            addTo(total, latency ? live.latency : live.counters);
+        }
+        return total;
+    }
+
+    private synchronized long counter(int index) {
+        return sum(retiredCounters, false)[index] - baselineCounters[index];
+    }
+
+    private synchronized LatencyHistogram latency() {
+        long[] counts = sum(retiredLatency, true);
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= baselineLatency[i];
+        }
+        return new LatencyHistogram(counts);
+    }
+
+    /**
+     * Счетчики одного потока. Пишет в них только поток-владелец, поэтому увеличение -
+     * обычные чтение и запись; запись через setOpaque лишь гарантирует, что читающий
+     * поток увидит значение целиком.
+     */
+    static final class Recorder {
+        private final Thread owner;
+        private final long[] counters = new long[COUNTERS];
+        private final long[] latency = new long[LatencyHistogram.BUCKETS];
+        private int sequence;
+
+        private Recorder(Thread owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * true, если время очередного запроса нужно измерить.
+         */
+        boolean nextQueryTimed() {
+            return (sequence++ & (SAMPLE_INTERVAL - 1)) == 0;
+        }
+
+        /**
+         * Учитывает запрос маршрута.
+         * @param length число городов маршрута, 0 если маршрут не найден
+         * @param nanos время запроса или -1, если оно не измерялось
+         */
+        void recordQuery(Route.Mode mode, int length, long nanos) {
+            add(counters, QUERIES, 1);
+            add(counters, MODE_QUERIES + mode.ordinal(), 1);
+            if (length == 0) {
+                add(counters, ROUTES_NOT_FOUND, 1);
+            } else {
+                add(counters, PATH_CITIES, length);
+            }
+            if (nanos >= 0) {
+                add(latency, LatencyHistogram.bucket(nanos), 1);
+                add(counters, LATENCY_TOTAL, nanos);
+            }
+        }
+
+        /**
+         * Учитывает один поиск пути по снимку графа.
+         */
+        void recordSearch(int expanded, long relaxed) {
+            add(counters, SEARCHES, 1);
+            add(counters, NODES_EXPANDED, expanded);
+            add(counters, EDGES_RELAXED, relaxed);
+        }
+
+        private static void add(long[] values, int index, long delta) {
+            LONGS.setOpaque(values, index, values[index] + delta);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Включает или выключает сбор статистики; накопленные значения сохраняются.
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getQueries() { return counter(QUERIES); }
+
+    public long getQueries(Route.Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Режим маршрута не может быть null");
+        }
+        return counter(MODE_QUERIES + mode.ordinal());
+    }
+
+    @Override
+    public long getSearches() { return counter(SEARCHES); }
+    @Override
+    public long getRoutesNotFound() { return counter(ROUTES_NOT_FOUND); }
+    @Override
+    public long getNodesExpanded() { return counter(NODES_EXPANDED); }
+    @Override
+    public long getEdgesRelaxed() { return counter(EDGES_RELAXED); }
+
+    /**
+     * Среднее число городов, извлеченных из очереди за один поиск.
+     */
+    @Override
+    public double getAverageNodesExpanded() {
+        return average(counter(NODES_EXPANDED), counter(SEARCHES));
+    }
+
+    /**
+     * Среднее число просмотренных дорог за один поиск.
+     */
+    @Override
+    public double getAverageEdgesRelaxed() {
+        return average(counter(EDGES_RELAXED), counter(SEARCHES));
+    }
+
+    /**
+     * Среднее число городов в найденных маршрутах.
+     */
+    @Override
+    public double getAveragePathCities() {
+        return average(counter(PATH_CITIES), counter(QUERIES) - counter(ROUTES_NOT_FOUND));
+    }
+
+    /**
+     * Среднее время измеренных запросов.
+     */
+    @Override
+    public double getMeanLatencyMicros() {
+        return average(counter(LATENCY_TOTAL), latency().getCount()) / 1000;
+    }
+
+    @Override
+    public double getLatencyP50Micros() { return getLatencyPercentileMicros(50); }
+    @Override
+    public double getLatencyP90Micros() { return getLatencyPercentileMicros(90); }
+    @Override
+    public double getLatencyP99Micros() { return getLatencyPercentileMicros(99); }
+    @Override
+    public double getLatencyP999Micros() { return getLatencyPercentileMicros(99.9); }
+    @Override
+    public double getMaxLatencyMicros() { return latency().getMax() / 1000.0; }
+
+    /**
+     * Время запроса в микросекундах, которое не превышают percentile процентов
+     * измеренных запросов (с точностью около 3%).
+     */
+    public double getLatencyPercentileMicros(double percentile) {
+        return latency().getPercentile(percentile) / 1000.0;
+    }
+
+    private static double average(long total, long count) {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Обнуляет статистику. Счетчики потоков не трогаются (их пишут только владельцы),
+     * запоминаются текущие суммы, и дальше статистика считается от них.
+     */
+    @Override
+    public synchronized void reset() {
+        System.arraycopy(sum(retiredCounters, false), 0, baselineCounters, 0, COUNTERS);
+        System.arraycopy(sum(retiredLatency, true), 0, baselineLatency, 0, LatencyHistogram.BUCKETS);
+    }
+
+    /**
+     * Регистрирует статистику в платформенном MBeanServer под именем
+     * ru.anyanov.city:type=RouteMetrics,name=name (например, для просмотра в JConsole).
+     * Статистику одного графа можно зарегистрировать только под одним именем.
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Имя MBean не может быть пустым");
+        }
+        if (registeredName != null) {
+            throw new IllegalStateException("Статистика уже зарегистрирована как " + registeredName);
+        }
+        try {
+            ObjectName objectName = new ObjectName("ru.anyanov.city:type=RouteMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось зарегистрировать статистику маршрутов в JMX", e);
+        }
+    }
+
+    /**
+     * Снимает регистрацию, выполненную registerMBean; без регистрации ничего не делает.
+     */
+    public synchronized void unregisterMBean() {
+        if (registeredName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(registeredName)) {
+                server.unregisterMBean(registeredName);
+            }
+            registeredName = null;
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось снять регистрацию статистики маршрутов в JMX", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RouteMetrics[запросов=%d, поисков=%d, не найдено=%d, "
+                        + "городов за поиск=%.1f, дорог за поиск=%.1f, p50=%.1f мкс, p99=%.1f мкс, max=%.1f мкс]",
+                getQueries(), getSearches(), getRoutesNotFound(), getAverageNodesExpanded(),
+                getAverageEdgesRelaxed(), getLatencyP50Micros(), getLatencyP99Micros(), getMaxLatencyMicros());
+    }
+}
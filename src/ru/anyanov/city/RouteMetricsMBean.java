@@ -0,0 +1,50 @@
+package ru.anyanov.city;
+
+/**
+ * Интерфейс управления RouteMetrics через JMX (см. RouteMetrics.registerMBean).
+ * Время - в микросекундах.
+ */
+public interface RouteMetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getQueries();
+
+    long getSearches();
+
+    long getRoutesNotFound();
+
+    long getNodesExpanded();
+
+    long getEdgesRelaxed();
+
+    double getAverageNodesExpanded();
+
+    double getAverageEdgesRelaxed();
+
+    double getAveragePathCities();
+
+    /**
+     * Среднее время запроса. Время измеряется выборочно, у каждого
+     * RouteMetrics.SAMPLE_INTERVAL-го запроса потока, поэтому среднее, процентили
+     * и максимум ниже относятся к выборке, а не ко всем запросам: одиночный
+     * медленный запрос может в нее не попасть. Счетчики выше учитывают все запросы.
+     */
+    double getMeanLatencyMicros();
+
+    double getLatencyP50Micros();
+
+    double getLatencyP90Micros();
+
+    double getLatencyP99Micros();
+
+    double getLatencyP999Micros();
+
+    /**
+     * Максимальное время среди запросов, попавших в выборку.
+     */
+    double getMaxLatencyMicros();
+
+    void reset();
+}
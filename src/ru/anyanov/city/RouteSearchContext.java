@@ -0,0 +1,111 @@
+package ru.anyanov.city;
+
+import java.util.Arrays;
+
+/**
+ * Рабочие массивы одного поиска маршрута (прямое и обратное направление).
+ * Переиспользуются между запросами в пределах потока и не очищаются:
+ * значения города в направлении действительны, только если его отметка
+ * (forwardStamp/backwardStamp) равна текущему номеру поиска stamp.
+ * Сброс после поиска - увеличение stamp, поэтому он не зависит
+ * ни от размера графа, ни от просмотренной части.
+ */
+final class RouteSearchContext {
+    // Номер текущего поиска
+    int stamp = 1;
+    int[] forwardStamp = new int[0];
+    int[] backwardStamp = new int[0];
+    // Предыдущий город на пути (для обратного направления - следующий)
+    int[] forwardParent = new int[0];
+    int[] backwardParent = new int[0];
+    // Расстояние от начала (до конца)
+    long[] forwardDistance = new long[0];
+    long[] backwardDistance = new long[0];
+    int[] forwardQueue = new int[0];
+    int[] backwardQueue = new int[0];
+    IndexedMinHeap forwardHeap = new IndexedMinHeap(0);
+    IndexedMinHeap backwardHeap = new IndexedMinHeap(0);
+    // Найденный путь: идентификаторы городов в path[0..длина)
+    int[] path = new int[0];
+    // Работа последнего поиска для RouteMetrics: сколько городов извлечено
+    // из очереди и сколько их дорог просмотрено. Поиски записывают их перед выходом
+    int expanded;
+    long relaxed;
+
+    // Состояние поиска альтернативных маршрутов (PathFinder.findKCheapest):
+    // стоимость пути от каждого города до цели и отметки запрещенных городов и дорог.
+    // Город или дорога запрещены в текущем поиске, если их отметка равна banStamp
+    long[] targetDistance = new long[0];
+    int[] bannedCities = new int[0];
+    int[] bannedRoads = new int[0];
+    int banStamp;
+
+    /**
+     * Готовит контекст к поиску в графе из size городов.
+     */
+    void prepare(int size) {
+        if (forwardParent.length < size) {
+            int capacity = Math.max(size, forwardParent.length * 3 / 2);
+            forwardStamp = new int[capacity];
+            backwardStamp = new int[capacity];
+            forwardParent = new int[capacity];
+            backwardParent = new int[capacity];
+            forwardDistance = new long[capacity];
+            backwardDistance = new long[capacity];
+            forwardQueue = new int[capacity];
+            backwardQueue = new int[capacity];
+            forwardHeap = new IndexedMinHeap(capacity);
+            backwardHeap = new IndexedMinHeap(capacity);
+            path = new int[capacity];
+        }
+    }
+
+    /**
+     * Готовит массивы поиска альтернативных маршрутов в графе
+     * из size городов и roadCount направленных дорог.
+     */
+    void prepareAlternatives(int size, int roadCount) {
+        if (targetDistance.length < size) {
+            int capacity = Math.max(size, targetDistance.length * 3 / 2);
+            targetDistance = new long[capacity];
+            bannedCities = new int[capacity];
+        }
+        if (bannedRoads.length < roadCount) {
+            bannedRoads = new int[Math.max(roadCount, bannedRoads.length * 3 / 2)];
+        }
+    }
+
+    /**
+     * Начинает новый набор запретов; запреты предыдущего набора перестают действовать.
+     */
+    int nextBanStamp() {
+        if (++banStamp == 0) {
+            Arrays.fill(bannedCities, 0);
+            Arrays.fill(bannedRoads, 0);
+            banStamp = 1;
+        }
+        return banStamp;
+    }
+
+    /**
+     * Расстояние от начала прямого поиска или Long.MAX_VALUE, если город не достигнут.
+     */
+    long forwardDistanceOf(int id) {
+        return forwardStamp[id] == stamp ? forwardDistance[id] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Делает недействительными результаты поиска: следующий поиск начнется с чистого состояния.
+     * Найденный путь в path сохраняется.
+     */
+    void reset() {
+        if (++stamp == 0) {
+            // Номер поиска переполнился: старые отметки могли бы совпасть с новыми
+            Arrays.fill(forwardStamp, 0);
+            Arrays.fill(backwardStamp, 0);
+            stamp = 1;
+        }
+        forwardHeap.clear();
+        backwardHeap.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.anyanov.city;
+
+import ru.anyanov.geometry.KdTree;
+import ru.anyanov.geometry.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Пространственный индекс городов графа с координатами на KdTree.
+ *
+ * Индекс обновляется лениво, при следующем запросе: города, которым впервые заданы
+ * координаты, копятся в списке и добавляются в дерево одним пакетом, поэтому
+ * массовая загрузка городов строит дерево один раз. Перемещение или удаление
+ * координат города помечает индекс устаревшим, и он строится заново целиком.
+ * Все методы выполняются под монитором индекса.
+ */
+final class SpatialIndex {
+    private KdTree<City> tree = new KdTree<>();
+    // Города, получившие координаты после последнего запроса
+    private int[] pending = new int[16];
+    private int pendingCount;
+    private boolean stale;
+
+    /**
+     * Город впервые получил координаты.
+     */
+    synchronized void located(int id) {
+        if (stale) {
+            return;
+        }
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = id;
+    }
+
+    /**
+     * Координаты города изменились или удалены.
+     */
+    synchronized void invalidate() {
+        stale = true;
+        pendingCount = 0;
+    }
+
+    synchronized City nearest(RoadGraph graph, Point point) {
+        return update(graph).nearest(point);
+    }
+
+    synchronized List<City> nearest(RoadGraph graph, Point point, int k) {
+        return update(graph).nearest(point, k);
+    }
+
+    synchronized List<City> withinRadius(RoadGraph graph, Point center, double radius) {
+        return update(graph).withinRadius(center, radius);
+    }
+
+    // Дерево, содержащее все города с координатами
+    private KdTree<City> update(RoadGraph graph) {
+        if (stale) {
+            tree = new KdTree<>();
+            List<City> located = new ArrayList<>();
+            for (int id = 0; id < graph.size(); id++) {
+                located.add(graph.getCity(id));
+            }
+            tree.addAll(located, City::getLocation);
+            stale = false;
+        } else if (pendingCount > 0) {
+            List<City> located = new ArrayList<>(pendingCount);
+            for (int i = 0; i < pendingCount; i++) {
+                located.add(graph.getCity(pending[i]));
+            }
+            tree.addAll(located, City::getLocation);
+            pendingCount = 0;
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,215 @@
+package ru.anyanov.fraction;
+
+import java.math.BigInteger;
+
+/**
+ * Точная несократимая дробь с числителем и знаменателем в BigInteger.
+ * Знаменатель всегда положителен.
+ *
+ * Множители сокращаются крест-накрест так же, как в LongFraction.
+ * Результаты, которые помещаются в long, возвращаются как LongFraction,
+ * поэтому дальнейшие операции с ними снова идут в long.
+ */
+public final class BigFraction extends ExactFraction {
+    private static final long serialVersionUID = 1L;
+
+    private final BigInteger numerator;
+    private final BigInteger denominator;
+
+    /**
+     * Создает дробь и сокращает ее.
+     * @throws IllegalArgumentException если знаменатель равен 0
+     */
+    public BigFraction(BigInteger numerator, BigInteger denominator) {
+        this(numerator, denominator, true);
+    }
+
+    // normalize == false - компоненты уже несократимы, знаменатель положителен
+    private BigFraction(BigInteger numerator, BigInteger denominator, boolean normalize) {
+        if (normalize) {
+            if (numerator == null || denominator == null) {
+                throw new IllegalArgumentException("Числитель и знаменатель не могут быть null");
+            }
+            if (denominator.signum() == 0) {
+                throw new IllegalArgumentException("Знаменатель не может быть равен 0");
+            }
+            if (denominator.signum() < 0) {
+                numerator = numerator.negate();
+                denominator = denominator.negate();
+            }
+            BigInteger gcd = numerator.gcd(denominator);
+            if (!gcd.equals(BigInteger.ONE)) {
+                numerator = numerator.divide(gcd);
+                denominator = denominator.divide(gcd);
+            }
+        }
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    /**
+     * Дробь из уже несократимых компонент с положительным знаменателем, без проверок.
+     */
+    static BigFraction ofReduced(BigInteger numerator, BigInteger denominator) {
+        return new BigFraction(numerator, denominator, false);
+    }
+
+    public BigInteger getNumerator() { return numerator; }
+    public BigInteger getDenominator() { return denominator; }
+
+    // Несократимая дробь в самом компактном представлении
+    private static ExactFraction of(BigInteger numerator, BigInteger denominator) {
+        BigFraction fraction = ofReduced(numerator, denominator);
+        return fraction.fitsLong() ? fraction.toLongFraction() : fraction;
+    }
+
+    boolean fitsLong() {
+        return numerator.bitLength() < Long.SIZE && denominator.bitLength() < Long.SIZE;
+    }
+
+    LongFraction toLongFraction() {
+        return LongFraction.ofReduced(numerator.longValue(), denominator.longValue());
+    }
+
+    @Override
+    public ExactFraction add(ExactFraction other) {
+        checkOperand(other);
+        BigFraction fraction = other.toBigFraction();
+        return sum(fraction.numerator, fraction.denominator);
+    }
+
+    @Override
+    public ExactFraction subtract(ExactFraction other) {
+        checkOperand(other);
+        BigFraction fraction = other.toBigFraction();
+        return sum(fraction.numerator.negate(), fraction.denominator);
+    }
+
+    // a/b + c/d, сокращение как в LongFraction.sum
+    private ExactFraction sum(BigInteger c, BigInteger d) {
+        BigInteger a = numerator;
+        BigInteger b = denominator;
+        BigInteger g = b.gcd(d);
+        if (g.equals(BigInteger.ONE)) {
+            return of(a.multiply(d).add(c.multiply(b)), b.multiply(d));
+        }
+        BigInteger t = a.multiply(d.divide(g)).add(c.multiply(b.divide(g)));
+        if (t.signum() == 0) {
+            return LongFraction.ZERO;
+        }
+        BigInteger g2 = t.gcd(g);
+        return of(t.divide(g2), b.divide(g).multiply(d.divide(g2)));
+    }
+
+    @Override
+    public ExactFraction multiply(ExactFraction other) {
+        checkOperand(other);
+        BigFraction fraction = other.toBigFraction();
+        return product(fraction.numerator, fraction.denominator);
+    }
+
+    @Override
+    public ExactFraction divide(ExactFraction other) {
+        checkOperand(other);
+        if (other.signum() == 0) {
+            throw new IllegalArgumentException("Деление на ноль");
+        }
+        BigFraction fraction = other.toBigFraction();
+        return fraction.numerator.signum() < 0
+                ? product(fraction.denominator.negate(), fraction.numerator.negate())
+                : product(fraction.denominator, fraction.numerator);
+    }
+
+    // (a/b) * (c/d), сокращение как в LongFraction.product
+    private ExactFraction product(BigInteger c, BigInteger d) {
+        BigInteger g1 = numerator.gcd(d);
+        BigInteger g2 = c.gcd(denominator);
+        return of(numerator.divide(g1).multiply(c.divide(g2)), denominator.divide(g2).multiply(d.divide(g1)));
+    }
+
+    @Override
+    public ExactFraction negate() {
+        return of(numerator.negate(), denominator);
+    }
+
+    @Override
+    public int signum() {
+        return numerator.signum();
+    }
+
+    @Override
+    public BigFraction toBigFraction() {
+        return this;
+    }
+
+    @Override
+    public int compareTo(ExactFraction other) {
+        checkOperand(other);
+        BigFraction fraction = other.toBigFraction();
+        return numerator.multiply(fraction.denominator).compareTo(fraction.numerator.multiply(denominator));
+    }
+
+    // Реализация методов Number
+    @Override
+    public int intValue() {
+        return numerator.divide(denominator).intValue();
+    }
+
+    @Override
+    public long longValue() {
+        return numerator.divide(denominator).longValue();
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    /**
+     * Ближайшее к дроби число double (для значений в диапазоне нормализованных чисел).
+     * Целочисленное частное берется с 55-56 значащими битами, а младший бит
+     * отмечает ненулевой остаток: тогда преобразование long в double
+     * округляет частное так же, как округлялось бы точное значение.
+     */
+    @Override
+    public double doubleValue() {
+        if (numerator.signum() == 0) {
+            return 0;
+        }
+        BigInteger magnitude = numerator.abs();
+        int shift = magnitude.bitLength() - denominator.bitLength() - 55;
+        BigInteger[] division = shift >= 0
+                ? magnitude.divideAndRemainder(denominator.shiftLeft(shift))
+                : magnitude.shiftLeft(-shift).divideAndRemainder(denominator);
+        long quotient = division[0].longValue();
+        if (division[1].signum() != 0) {
+            quotient |= 1;
+        }
+        double value = Math.scalb((double) quotient, shift);
+        return numerator.signum() < 0 ? -value : value;
+    }
+
+    @Override
+    public String toString() {
+        if (denominator.equals(BigInteger.ONE)) {
+            return numerator.toString();
+        }
+        return numerator + "/" + denominator;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ExactFraction)) return false;
+        BigFraction fraction = ((ExactFraction) obj).toBigFraction();
+        return numerator.equals(fraction.numerator) && denominator.equals(fraction.denominator);
+    }
+
+    @Override
+    public int hashCode() {
+        if (fitsLong()) {
+            return hash(numerator.longValue(), denominator.longValue());
+        }
+        return 31 * numerator.hashCode() + denominator.hashCode();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.anyanov.fraction;
+
+import java.math.BigInteger;
+
+/**
+ * Точная несократимая дробь произвольной величины.
+ *
+ * Есть два представления: LongFraction (числитель и знаменатель в long) и BigFraction
+ * (в BigInteger). Операции над LongFraction выполняются в long, а при переполнении,
+ * которое обнаруживают Math.multiplyExact/addExact, результат автоматически
+ * вычисляется в BigFraction. Результаты операций над BigFraction, которые снова
+ * помещаются в long, возвращаются как LongFraction. Поэтому код, работающий
+ * с ExactFraction, никогда не получает переполненного результата
+ * и платит за BigInteger только тогда, когда числа действительно большие.
+ *
+ * Дроби неизменяемы. Других подклассов, кроме LongFraction и BigFraction,
+ * быть не может: конструктор доступен только внутри пакета.
+ * Дроби с одинаковым значением равны (equals) и имеют одинаковый hashCode
+ * независимо от представления.
+ */
+public abstract class ExactFraction extends Number implements Comparable<ExactFraction> {
+    private static final long serialVersionUID = 1L;
+
+    ExactFraction() {
+    }
+
+    /**
+     * Дробь numerator/denominator в наиболее компактном представлении.
+     */
+    public static ExactFraction valueOf(long numerator, long denominator) {
+        try {
+            return new LongFraction(numerator, denominator);
+        } catch (ArithmeticException e) {
+            // После смены знака значение не помещается в long (например, 1/Long.MIN_VALUE)
+            return new BigFraction(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+        }
+    }
+
+    /**
+     * Дробь numerator/denominator в наиболее компактном представлении.
+     */
+    public static ExactFraction valueOf(BigInteger numerator, BigInteger denominator) {
+        BigFraction fraction = new BigFraction(numerator, denominator);
+        return fraction.fitsLong() ? fraction.toLongFraction() : fraction;
+    }
+
+    /**
+     * Точная дробь с тем же значением, что и у дроби с int-компонентами.
+     */
+    public static ExactFraction valueOf(Fraction fraction) {
+        if (fraction == null) {
+            throw new IllegalArgumentException("Дробь не может быть null");
+        }
+        // Дробь уже несократима, знаменатель положителен
+        return LongFraction.ofReduced(fraction.getNumerator(), fraction.getDenominator());
+    }
+
+    public abstract ExactFraction add(ExactFraction other);
+
+    public abstract ExactFraction subtract(ExactFraction other);
+
+    public abstract ExactFraction multiply(ExactFraction other);
+
+    /**
+     * @throws IllegalArgumentException при делении на ноль
+     */
+    public abstract ExactFraction divide(ExactFraction other);
+
+    public abstract ExactFraction negate();
+
+    /**
+     * -1, 0 или 1 в зависимости от знака дроби.
+     */
+    public abstract int signum();
+
+    /**
+     * Та же дробь в представлении BigInteger.
+     */
+    public abstract BigFraction toBigFraction();
+
+    static void checkOperand(ExactFraction other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Дробь не может быть null");
+        }
+    }
+
+    // Общий для обоих представлений хеш дроби, чьи компоненты помещаются в long
+    static int hash(long numerator, long denominator) {
+        return 31 * Long.hashCode(numerator) + Long.hashCode(denominator);
+    }
+}
@@ -1,56 +1,129 @@
 package ru.anyanov.fraction;
 
+/**
+ * Неизменяемая несократимая дробь с числителем и знаменателем в int; знаменатель положителен.
+ *
+ * Конструктор и арифметические операции выбрасывают ArithmeticException, если результат
+ * не помещается в int (раньше значение молча переполнялось и получалась неверная дробь).
+ * Для дробей произвольной величины используйте ExactFraction.
+ */
 public final class Fraction extends Number {
+    private static final long serialVersionUID = 1L;
+
     private final int numerator;
     private final int denominator;
 
+    /**
+     * @throws IllegalArgumentException если знаменатель равен 0
+     * @throws ArithmeticException если после переноса знака в числитель дробь не помещается в int
+     * (например, Integer.MIN_VALUE/-1)
+     */
     public Fraction(int numerator, int denominator) {
-        if (denominator == 0) {
-            throw new IllegalArgumentException("Знаменатель не может быть равен 0");
-        }
+        this(numerator, denominator, true);
+    }
 
-        // Обработка отрицательных значений
-        if (denominator < 0) {
-            numerator = -numerator;
-            denominator = -denominator;
+    // Вычисления в long: смена знака Integer.MIN_VALUE не переполняется.
+    // normalize == false - компоненты уже несократимы, знаменатель положителен
+    private Fraction(long numerator, long denominator, boolean normalize) {
+        if (normalize) {
+            if (denominator == 0) {
+                throw new IllegalArgumentException("Знаменатель не может быть равен 0");
+            }
+
+            // Обработка отрицательных значений
+            if (denominator < 0) {
+                numerator = -numerator;
+                denominator = -denominator;
+            }
+
+            // Упрощение дроби
+            long gcd = FractionMath.gcd(numerator, denominator);
+            numerator /= gcd;
+            denominator /= gcd;
         }
+        checkRange(numerator, denominator);
+        this.numerator = (int) numerator;
+        this.denominator = (int) denominator;
+    }
 
-        // Упрощение дроби
-        int gcd = gcd(Math.abs(numerator), Math.abs(denominator));
-        this.numerator = numerator / gcd;
-        this.denominator = denominator / gcd;
+    /**
+     * Дробь из уже несократимых компонент с положительным знаменателем.
+     * Проверяет только, что они помещаются в int.
+     */
+    private static Fraction ofReduced(long numerator, long denominator) {
+        return new Fraction(numerator, denominator, false);
     }
 
-    private int gcd(int a, int b) {
-        return b == 0 ? a : gcd(b, a % b);
+    private static void checkRange(long numerator, long denominator) {
+        if (numerator != (int) numerator || denominator != (int) denominator) {
+            throw new ArithmeticException("Дробь " + numerator + "/" + denominator
+                    + " не помещается в int, используйте ExactFraction");
+        }
     }
 
-    // Методы для арифметических операций
+    // Методы для арифметических операций.
+    // Промежуточные значения вычисляются в long, где произведения int не переполняются;
+    // если результат не помещается в int, выбрасывается ArithmeticException.
+    // Множители сокращаются заранее, крест-накрест (см. LongFraction),
+    // поэтому результат сразу несократим
+    /**
+     * @throws ArithmeticException если сумма не помещается в int
+     */
     public Fraction add(Fraction other) {
-        int newNumerator = this.numerator * other.denominator + other.numerator * this.denominator;
-        int newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        return sum(other.numerator, other.denominator);
     }
 
+    /**
+     * @throws ArithmeticException если разность не помещается в int
+     */
     public Fraction subtract(Fraction other) {
-        int newNumerator = this.numerator * other.denominator - other.numerator * this.denominator;
-        int newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        return sum(-(long) other.numerator, other.denominator);
     }
 
+    // a/b + c/d для несократимых слагаемых
+    private Fraction sum(long c, long d) {
+        long a = numerator;
+        long b = denominator;
+        long g = FractionMath.gcd(b, d);
+        if (g == 1) {
+            return ofReduced(a * d + c * b, b * d);
+        }
+        long t = a * (d / g) + c * (b / g);
+        if (t == 0) {
+            return ofReduced(0, 1);
+        }
+        long g2 = FractionMath.gcd(t, g);
+        return ofReduced(t / g2, (b / g) * (d / g2));
+    }
+
+    /**
+     * @throws ArithmeticException если произведение не помещается в int
+     */
     public Fraction multiply(Fraction other) {
-        int newNumerator = this.numerator * other.numerator;
-        int newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        return product(other.numerator, other.denominator);
     }
 
+    /**
+     * @throws IllegalArgumentException при делении на ноль
+     * @throws ArithmeticException если частное не помещается в int
+     */
     public Fraction divide(Fraction other) {
         if (other.numerator == 0) {
             throw new IllegalArgumentException("Деление на ноль");
         }
-        int newNumerator = this.numerator * other.denominator;
-        int newDenominator = this.denominator * other.numerator;
-        return new Fraction(newNumerator, newDenominator);
+        // Умножение на обратную дробь, знак переносится в числитель
+        return other.numerator < 0
+                ? product(-(long) other.denominator, -(long) other.numerator)
+                : product(other.denominator, other.numerator);
+    }
+
+    // (a/b) * (c/d) для несократимых множителей
+    private Fraction product(long c, long d) {
+        long a = numerator;
+        long b = denominator;
+        long g1 = FractionMath.gcd(a, d);
+        long g2 = FractionMath.gcd(c, b);
+        return ofReduced((a / g1) * (c / g2), (b / g2) * (d / g1));
     }
 
     // Реализация методов Number
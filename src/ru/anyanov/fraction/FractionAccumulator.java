@@ -0,0 +1,233 @@
+package ru.anyanov.fraction;
+
+import java.math.BigInteger;
+import java.util.stream.Collector;
+
+/**
+ * Изменяемая сумма дробей для суммирования большого числа слагаемых.
+ *
+ * Сложение неизменяемых Fraction создает объект и вычисляет НОД на каждом шаге.
+ * Аккумулятор хранит числитель и знаменатель в полях long и не сокращает сумму
+ * после каждого сложения: сокращение откладывается до чтения результата
+ * или до переполнения. Если знаменатель слагаемого делит знаменатель суммы
+ * (или наоборот), сложение обходится без НОД; иначе знаменателем суммы
+ * становится НОК знаменателей.
+ * Если сумма не помещается в long даже после сокращения, она продолжает
+ * накапливаться в BigInteger и сокращается, только когда знаменатель
+ * заметно вырос.
+ *
+ * Аккумулятор не потокобезопасен. Для параллельного суммирования каждый поток
+ * ведет свой аккумулятор, а частичные суммы объединяются методом merge
+ * (так работает коллектор summing()).
+ */
+public final class FractionAccumulator {
+    // Знаменатель суммы в BigInteger сокращается, когда он длиннее этого числа бит
+    // и вдвое длиннее, чем после прошлого сокращения
+    private static final int MIN_REDUCE_BITS = 128;
+
+    // Сумма в long: numerator/denominator, знаменатель положителен
+    private long numerator;
+    private long denominator = 1;
+
+    // Сумма в BigInteger, если не поместилась в long; иначе null
+    private BigInteger bigNumerator;
+    private BigInteger bigDenominator;
+    private int reduceBits;
+
+    /**
+     * Коллектор, суммирующий поток дробей точно (в том числе параллельный поток).
+     * Пустой поток дает 0.
+     */
+    public static Collector<Fraction, FractionAccumulator, ExactFraction> summing() {
+        return Collector.of(FractionAccumulator::new, FractionAccumulator::add,
+                FractionAccumulator::merge, FractionAccumulator::toExactFraction,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    public FractionAccumulator add(Fraction fraction) {
+        if (fraction == null) {
+            throw new IllegalArgumentException("Дробь не может быть null");
+        }
+        add(fraction.getNumerator(), fraction.getDenominator());
+        return this;
+    }
+
+    public FractionAccumulator add(ExactFraction fraction) {
+        if (fraction instanceof LongFraction) {
+            LongFraction value = (LongFraction) fraction;
+            add(value.getNumerator(), value.getDenominator());
+        } else if (fraction instanceof BigFraction) {
+            BigFraction value = (BigFraction) fraction;
+            addBig(value.getNumerator(), value.getDenominator());
+        } else {
+            throw new IllegalArgumentException("Дробь не может быть null");
+        }
+        return this;
+    }
+
+    /**
+     * Прибавляет целое число.
+     */
+    public FractionAccumulator add(long value) {
+        add(value, 1);
+        return this;
+    }
+
+    public FractionAccumulator addAll(Fraction... fractions) {
+        if (fractions == null) {
+            throw new IllegalArgumentException("Массив дробей не может быть null");
+        }
+        for (Fraction fraction : fractions) {
+            add(fraction);
+        }
+        return this;
+    }
+
+    /**
+     * Прибавляет сумму другого аккумулятора; тот не изменяется.
+     */
+    public FractionAccumulator merge(FractionAccumulator other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Аккумулятор не может быть null");
+        }
+        if (other.bigNumerator == null) {
+            add(other.numerator, other.denominator);
+        } else {
+            addBig(other.bigNumerator, other.bigDenominator);
+        }
+        return this;
+    }
+
+    // Прибавляет c/d, d > 0
+    void add(long c, long d) {
+        if (bigNumerator != null) {
+            addBig(BigInteger.valueOf(c), BigInteger.valueOf(d));
+            return;
+        }
+        try {
+            addLong(c, d);
+        } catch (ArithmeticException e) {
+            // Переполнение: сокращаем сумму и пробуем еще раз, затем переходим к BigInteger
+            reduce();
+            try {
+                addLong(c, d);
+            } catch (ArithmeticException again) {
+                bigNumerator = BigInteger.valueOf(numerator);
+                bigDenominator = BigInteger.valueOf(denominator);
+                reduceBits = MIN_REDUCE_BITS;
+                addBig(BigInteger.valueOf(c), BigInteger.valueOf(d));
+            }
+        }
+    }
+
+    // Сложение в long; при переполнении поля не изменяются
+    private void addLong(long c, long d) {
+        if (numerator == 0) {
+            numerator = c;
+            denominator = d;
+        } else if (denominator % d == 0) {
+            numerator = Math.addExact(numerator, Math.multiplyExact(c, denominator / d));
+        } else if (d % denominator == 0) {
+            numerator = Math.addExact(Math.multiplyExact(numerator, d / denominator), c);
+            denominator = d;
+        } else {
+            // Знаменатель суммы - НОК знаменателей, а не их произведение: так он растет
+            // медленнее, и переполнение (с сокращением всей суммы) случается реже
+            long g = FractionMath.gcd(denominator, d);
+            long newNumerator = Math.addExact(Math.multiplyExact(numerator, d / g),
+                    Math.multiplyExact(c, denominator / g));
+            denominator = Math.multiplyExact(denominator / g, d);
+            numerator = newNumerator;
+        }
+    }
+
+    private void addBig(BigInteger c, BigInteger d) {
+        if (bigNumerator == null) {
+            bigNumerator = BigInteger.valueOf(numerator);
+            bigDenominator = BigInteger.valueOf(denominator);
+            reduceBits = MIN_REDUCE_BITS;
+        }
+        if (bigDenominator.equals(d)) {
+            bigNumerator = bigNumerator.add(c);
+        } else {
+            bigNumerator = bigNumerator.multiply(d).add(c.multiply(bigDenominator));
+            bigDenominator = bigDenominator.multiply(d);
+        }
+        if (bigDenominator.bitLength() > reduceBits) {
+            reduce();
+        }
+    }
+
+    /**
+     * Сокращает сумму; сумму в BigInteger, которая снова помещается в long,
+     * переводит обратно в long.
+     */
+    private void reduce() {
+        if (bigNumerator == null) {
+            long gcd = FractionMath.gcd(numerator, denominator);
+            numerator /= gcd;
+            denominator /= gcd;
+            return;
+        }
+        BigInteger gcd = bigNumerator.gcd(bigDenominator);
+        bigNumerator = bigNumerator.divide(gcd);
+        bigDenominator = bigDenominator.divide(gcd);
+        if (bigNumerator.bitLength() < Long.SIZE && bigDenominator.bitLength() < Long.SIZE) {
+            numerator = bigNumerator.longValue();
+            denominator = bigDenominator.longValue();
+            bigNumerator = null;
+            bigDenominator = null;
+        } else {
+            reduceBits = Math.max(MIN_REDUCE_BITS, 2 * bigDenominator.bitLength());
+        }
+    }
+
+    /**
+     * true, если сумма хранится в long; тогда ее числитель и знаменатель
+     * (не обязательно сокращенные) возвращают numerator() и denominator().
+     * Сумму в BigInteger, которая после сокращения помещается в long, переводит в long.
+     */
+    boolean fitsLong() {
+        if (bigNumerator != null) {
+            reduce();
+        }
+        return bigNumerator == null;
+    }
+
+    long numerator() {
+        return numerator;
+    }
+
+    long denominator() {
+        return denominator;
+    }
+
+    /**
+     * Текущая сумма в виде точной несократимой дроби.
+     */
+    public ExactFraction toExactFraction() {
+        reduce();
+        if (bigNumerator != null) {
+            return BigFraction.ofReduced(bigNumerator, bigDenominator);
+        }
+        return LongFraction.ofReduced(numerator, denominator);
+    }
+
+    /**
+     * Текущая сумма в виде Fraction.
+     * @throws ArithmeticException если сумма не помещается в int
+     */
+    public Fraction toFraction() {
+        reduce();
+        if (bigNumerator != null || numerator != (int) numerator || denominator != (int) denominator) {
+            throw new ArithmeticException("Сумма " + toExactFraction()
+                    + " не помещается в int, используйте toExactFraction");
+        }
+        return new Fraction((int) numerator, (int) denominator);
+    }
+
+    @Override
+    public String toString() {
+        return toExactFraction().toString();
+    }
+}
@@ -0,0 +1,279 @@
+package ru.anyanov.fraction;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Разбор и запись дробей в виде "a/b" или "a" (целое число) без промежуточных String.
+ *
+ * Разбор читает символы прямо из CharSequence или байты ASCII из ByteBuffer
+ * по абсолютным индексам (позиция буфера не меняется). Числитель и знаменатель
+ * могут иметь знак, пробелы вокруг дроби и вокруг '/' допускаются.
+ * Запись добавляет цифры в переданный StringBuilder или ByteBuffer,
+ * которые можно переиспользовать для миллионов дробей.
+ * Потоковое чтение и запись файлов - FractionReader и FractionWriter.
+ */
+public final class FractionFormat {
+    // Самая длинная запись дроби с int-компонентами: "-2147483648/2147483647"
+    public static final int MAX_LENGTH = 22;
+    // То же для числителя и знаменателя long
+    static final int MAX_LONG_LENGTH = 20 + 1 + 19;
+
+    private FractionFormat() {
+    }
+
+    /**
+     * @throws NumberFormatException если текст не является записью дроби
+     * или числа не помещаются в int, в том числе после сокращения и переноса знака
+     * в числитель (например, "-2147483648/-1")
+     * @throws IllegalArgumentException если знаменатель равен 0
+     */
+    public static Fraction parse(CharSequence text) {
+        if (text == null) {
+            throw new NumberFormatException("Текст дроби не может быть null");
+        }
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Разбирает дробь из символов [from, to).
+     */
+    public static Fraction parse(CharSequence text, int from, int to) {
+        if (text == null) {
+            throw new NumberFormatException("Текст дроби не может быть null");
+        }
+        checkRange(from, to, text.length());
+        return new CharSource(text).fraction(from, to);
+    }
+
+    /**
+     * Разбирает дробь из байтов ASCII [from, to) буфера; позиция буфера не меняется.
+     */
+    public static Fraction parse(ByteBuffer buffer, int from, int to) {
+        if (buffer == null) {
+            throw new NumberFormatException("Буфер не может быть null");
+        }
+        checkRange(from, to, buffer.limit());
+        return new ByteSource(buffer).fraction(from, to);
+    }
+
+    private static void checkRange(int from, int to, int length) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("Некорректный диапазон [" + from + ", " + to + ")");
+        }
+    }
+
+    // Числитель и знаменатель (как записаны, без сокращения) упакованы в один long,
+    // чтобы разбор не создавал объектов
+    static int numerator(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    static int denominator(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Символы, из которых разбирается дробь. Реализации final и вызываются
+     * из одного места, поэтому JIT встраивает их.
+     */
+    abstract static class Source {
+        abstract int charAt(int index);
+
+        abstract NumberFormatException error(String message, int from, int to);
+
+        /**
+         * Разбирает "a/b" или "a" в [from, to) и возвращает упакованные числитель и знаменатель.
+         */
+        final long parse(int from, int to) {
+            int start = skipSpaces(from, to);
+            int end = to;
+            while (end > start && isSpace(charAt(end - 1))) {
+                end--;
+            }
+            int slash = start;
+            while (slash < end && charAt(slash) != '/') {
+                slash++;
+            }
+            int numerator = parseInt(start, trimEnd(start, slash), from, to);
+            int denominator = 1;
+            if (slash < end) {
+                denominator = parseInt(skipSpaces(slash + 1, end), end, from, to);
+            }
+            return ((long) numerator << 32) | (denominator & 0xFFFFFFFFL);
+        }
+
+        /**
+         * Разбирает дробь в [from, to); дробь, не помещающуюся в int после
+         * переноса знака в числитель, сообщает как ошибку формата.
+         */
+        final Fraction fraction(int from, int to) {
+            long packed = parse(from, to);
+            try {
+                return new Fraction(numerator(packed), denominator(packed));
+            } catch (ArithmeticException e) {
+                throw error("Дробь не помещается в int", from, to);
+            }
+        }
+
+        private int parseInt(int start, int end, int from, int to) {
+            int i = start;
+            boolean negative = false;
+            if (i < end && (charAt(i) == '-' || charAt(i) == '+')) {
+                negative = charAt(i) == '-';
+                i++;
+            }
+            if (i == end) {
+                throw error("Ожидается число", from, to);
+            }
+            // Накопление с минусом: |Integer.MIN_VALUE| не помещается в int
+            long value = 0;
+            for (; i < end; i++) {
+                int digit = charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw error("Недопустимый символ", from, to);
+                }
+                value = value * 10 - digit;
+                if (value < Integer.MIN_VALUE) {
+                    throw error("Число не помещается в int", from, to);
+                }
+            }
+            if (!negative && value == Integer.MIN_VALUE) {
+                throw error("Число не помещается в int", from, to);
+            }
+            return (int) (negative ? value : -value);
+        }
+
+        private int skipSpaces(int from, int to) {
+            while (from < to && isSpace(charAt(from))) {
+                from++;
+            }
+            return from;
+        }
+
+        private int trimEnd(int from, int to) {
+            while (to > from && isSpace(charAt(to - 1))) {
+                to--;
+            }
+            return to;
+        }
+    }
+
+    static boolean isSpace(int symbol) {
+        return symbol == ' ' || symbol == '\t' || symbol == '\r' || symbol == '\n';
+    }
+
+    static final class CharSource extends Source {
+        private final CharSequence text;
+
+        CharSource(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        int charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        NumberFormatException error(String message, int from, int to) {
+            return new NumberFormatException(message + " в дроби \"" + text.subSequence(from, to) + "\"");
+        }
+    }
+
+    static final class ByteSource extends Source {
+        private final ByteBuffer buffer;
+
+        ByteSource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        int charAt(int index) {
+            return buffer.get(index);
+        }
+
+        @Override
+        NumberFormatException error(String message, int from, int to) {
+            StringBuilder token = new StringBuilder(to - from);
+            for (int i = from; i < to; i++) {
+                token.append((char) (buffer.get(i) & 0xFF));
+            }
+            return new NumberFormatException(message + " в дроби \"" + token + "\"");
+        }
+    }
+
+    /**
+     * Добавляет запись дроби ("a/b" или "a" для целых) в конец out.
+     * @return out
+     */
+    public static StringBuilder format(Fraction fraction, StringBuilder out) {
+        if (fraction == null || out == null) {
+            throw new IllegalArgumentException("Дробь и StringBuilder не могут быть null");
+        }
+        out.append(fraction.getNumerator());
+        if (fraction.getDenominator() != 1) {
+            out.append('/').append(fraction.getDenominator());
+        }
+        return out;
+    }
+
+    /**
+     * Записывает дробь байтами ASCII с текущей позиции буфера и сдвигает позицию.
+     * @return out
+     * @throws BufferOverflowException если в буфере не хватает места; тогда буфер не изменяется
+     */
+    public static ByteBuffer format(Fraction fraction, ByteBuffer out) {
+        if (fraction == null || out == null) {
+            throw new IllegalArgumentException("Дробь и буфер не могут быть null");
+        }
+        int length = length(fraction.getNumerator(), fraction.getDenominator());
+        if (out.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        out.position(put(out, out.position(), fraction.getNumerator(), fraction.getDenominator()));
+        return out;
+    }
+
+    // Длина записи несократимой дроби с положительным знаменателем
+    static int length(long numerator, long denominator) {
+        return denominator == 1 ? length(numerator) : length(numerator) + 1 + length(denominator);
+    }
+
+    // Записывает дробь по абсолютной позиции; возвращает позицию после записи
+    static int put(ByteBuffer out, int position, long numerator, long denominator) {
+        position = putLong(out, position, numerator);
+        if (denominator != 1) {
+            out.put(position++, (byte) '/');
+            position = putLong(out, position, denominator);
+        }
+        return position;
+    }
+
+    // Число символов десятичной записи. Модуль копится со знаком минус,
+    // потому что |Long.MIN_VALUE| не помещается в long
+    static int length(long value) {
+        long magnitude = value < 0 ? value : -value;
+        int digits = value < 0 ? 2 : 1;
+        while (magnitude <= -10) {
+            magnitude /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    // Записывает цифры с конца, без промежуточного массива; возвращает позицию после числа
+    static int putLong(ByteBuffer out, int position, long value) {
+        int end = position + length(value);
+        long magnitude = value < 0 ? value : -value;
+        int i = end;
+        do {
+            out.put(--i, (byte) ('0' - magnitude % 10));
+            magnitude /= 10;
+        } while (magnitude != 0);
+        if (value < 0) {
+            out.put(position, (byte) '-');
+        }
+        return end;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.anyanov.fraction;
+
+/**
+ * Общие вычисления для дробей пакета.
+ */
+final class FractionMath {
+    private FractionMath() {
+    }
+
+    /**
+     * Наибольший общий делитель модулей a и b бинарным алгоритмом (алгоритм Стейна):
+     * вместо деления с остатком - только сдвиги и вычитания, без рекурсии.
+     * Модули сравниваются как беззнаковые, поэтому Long.MIN_VALUE обрабатывается
+     * корректно (как 2^63). Результат должен помещаться в long, то есть хотя бы
+     * один из аргументов не равен Long.MIN_VALUE; gcd(0, 0) = 0.
+     */
+    static long gcd(long a, long b) {
+        a = Math.abs(a);
+        b = Math.abs(b);
+        if (a == 0) {
+            return b;
+        }
+        if (b == 0) {
+            return a;
+        }
+        // Общая степень двойки
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>>= Long.numberOfTrailingZeros(a);
+        do {
+            b >>>= Long.numberOfTrailingZeros(b);
+            // Оба нечетные: из большего вычитаем меньшее, разность четная
+            if (Long.compareUnsigned(a, b) > 0) {
+                long swap = a;
+                a = b;
+                b = swap;
+            }
+            b -= a;
+        } while (b != 0);
+        return a << shift;
+    }
+}
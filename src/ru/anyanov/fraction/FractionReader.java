@@ -0,0 +1,227 @@
+package ru.anyanov.fraction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Потоковое чтение дробей "a/b" или "a", разделенных пробелами, переводами строк,
+ * запятыми или точками с запятой.
+ *
+ * Канал читается блоками фиксированного размера, и дроби разбираются прямо в байтах
+ * буфера, без String на каждую дробь. next() только разбирает очередную дробь
+ * в числитель и знаменатель (как они записаны, без сокращения), поэтому sum()
+ * и readVector() читают файл, не создавая объектов на каждую дробь.
+ * Память чтения ограничена буфером и не зависит от размера файла.
+ *
+ * Внутри одной дроби пробелов быть не должно. Ошибки формата сообщаются
+ * IOException с номером дроби.
+ */
+public final class FractionReader implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final byte[] data;
+    private final ByteBuffer buffer;
+    private final FractionFormat.ByteSource source;
+    // Неразобранные байты буфера: [position, filled)
+    private int position;
+    private int filled;
+    private boolean eof;
+
+    private long count;
+    private int numerator;
+    private int denominator;
+
+    public FractionReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public FractionReader(ReadableByteChannel channel, int bufferSize) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Канал не может быть null");
+        }
+        if (bufferSize < 64) {
+            throw new IllegalArgumentException("Слишком маленький буфер чтения");
+        }
+        this.channel = channel;
+        this.data = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(data);
+        this.source = new FractionFormat.ByteSource(buffer);
+    }
+
+    public static FractionReader open(Path file) throws IOException {
+        return new FractionReader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Разбирает следующую дробь.
+     * @return false, если дробей больше нет
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            while (position < filled && isSeparator(data[position])) {
+                position++;
+            }
+            int end = position;
+            while (end < filled && !isSeparator(data[end])) {
+                end++;
+            }
+            // Дробь разбирается, только когда виден ее конец: разделитель или конец канала
+            if (end < filled || (eof && end > position)) {
+                parse(position, end);
+                position = end;
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    // Переносит незаконченную дробь в начало буфера и дочитывает канал
+    private void fill() throws IOException {
+        System.arraycopy(data, position, data, 0, filled - position);
+        filled -= position;
+        position = 0;
+        if (filled == data.length) {
+            throw new IOException("Дробь " + (count + 1) + " длиннее буфера чтения (" + data.length + " байт)");
+        }
+        buffer.limit(data.length).position(filled);
+        int read = channel.read(buffer);
+        if (read < 0) {
+            eof = true;
+        } else {
+            filled += read;
+        }
+    }
+
+    private void parse(int from, int to) throws IOException {
+        long packed;
+        try {
+            packed = source.parse(from, to);
+        } catch (NumberFormatException e) {
+            throw new IOException("Дробь " + (count + 1) + ": " + e.getMessage());
+        }
+        if (FractionFormat.denominator(packed) == 0) {
+            throw new IOException("Дробь " + (count + 1) + ": знаменатель не может быть равен 0");
+        }
+        numerator = FractionFormat.numerator(packed);
+        denominator = FractionFormat.denominator(packed);
+        count++;
+    }
+
+    private static boolean isSeparator(byte symbol) {
+        return symbol == ' ' || symbol == '\n' || symbol == '\r' || symbol == '\t'
+                || symbol == ',' || symbol == ';';
+    }
+
+    /**
+     * Числитель последней разобранной дроби, как он записан.
+     */
+    public int getNumerator() {
+        checkCurrent();
+        return numerator;
+    }
+
+    /**
+     * Знаменатель последней разобранной дроби, как он записан (не равен 0, может быть отрицательным).
+     */
+    public int getDenominator() {
+        checkCurrent();
+        return denominator;
+    }
+
+    /**
+     * Последняя разобранная дробь.
+     * @throws ArithmeticException если после переноса знака в числитель дробь
+     * не помещается в int (например, "-2147483648/-1"); getNumerator() и getDenominator()
+     * для нее по-прежнему работают
+     */
+    public Fraction fraction() {
+        checkCurrent();
+        return new Fraction(numerator, denominator);
+    }
+
+    private void checkCurrent() {
+        if (count == 0) {
+            throw new IllegalStateException("Дробь еще не прочитана, вызовите next()");
+        }
+    }
+
+    /**
+     * Число разобранных дробей.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Следующая дробь или null, если дробей больше нет.
+     * @throws IOException при ошибке формата, в том числе если дробь не помещается в int
+     */
+    public Fraction read() throws IOException {
+        if (!next()) {
+            return null;
+        }
+        try {
+            return new Fraction(numerator, denominator);
+        } catch (ArithmeticException e) {
+            throw new IOException("Дробь " + count + ": " + numerator + "/" + denominator + " не помещается в int");
+        }
+    }
+
+    /**
+     * Точная сумма оставшихся дробей (0, если их нет).
+     */
+    public ExactFraction sum() throws IOException {
+        FractionAccumulator accumulator = new FractionAccumulator();
+        while (next()) {
+            // В long перенос знака в числитель не переполняется
+            if (denominator < 0) {
+                accumulator.add(-(long) numerator, -(long) denominator);
+            } else {
+                accumulator.add(numerator, denominator);
+            }
+        }
+        return accumulator.toExactFraction();
+    }
+
+    /**
+     * Вектор из оставшихся дробей.
+     */
+    public FractionVector readVector() throws IOException {
+        long[] numerators = new long[1024];
+        long[] denominators = new long[1024];
+        int size = 0;
+        while (next()) {
+            if (size == numerators.length) {
+                numerators = Arrays.copyOf(numerators, size * 2);
+                denominators = Arrays.copyOf(denominators, size * 2);
+            }
+            if (denominator < 0) {
+                numerators[size] = -(long) numerator;
+                denominators[size] = -(long) denominator;
+            } else {
+                numerators[size] = numerator;
+                denominators[size] = denominator;
+            }
+            size++;
+        }
+        return FractionVector.wrap(Arrays.copyOf(numerators, size), Arrays.copyOf(denominators, size));
+    }
+
+    /**
+     * Закрывает канал.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,502 @@
+package ru.anyanov.fraction;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Вектор дробей фиксированной длины, хранящий числители и знаменатели
+ * в двух массивах long (по столбцам) вместо объекта Fraction на каждый элемент.
+ *
+ * Элементы не сокращаются после каждой операции: результат a/b + c/d записывается
+ * как (ad + cb)/bd, и НОД не вычисляется. Сокращение откладывается до чтения
+ * элемента (get, getExact, toString) или до переполнения long: тогда элемент
+ * сокращается и вычисляется заново. Знаменатели всегда положительны.
+ * Если элемент не помещается в long даже после сокращения, операция
+ * выбрасывает ArithmeticException (для таких значений есть ExactFraction).
+ *
+ * Операции над длинными векторами выполняются параллельно в общем ForkJoinPool.
+ * Арифметика возвращает новый вектор, исходные векторы не изменяются.
+ * Методы set и reduce изменяют вектор; вектор не потокобезопасен.
+ */
+public final class FractionVector {
+    // Элементы, обрабатываемые одной задачей
+    private static final int BLOCK = 1 << 13;
+    // Векторы длиннее PARALLEL_BLOCKS блоков обрабатываются параллельно
+    private static final int PARALLEL_BLOCKS = 8;
+
+    // Номера операций для kernel
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int DIVIDE = 3;
+
+    private final long[] numerators;
+    private final long[] denominators;
+
+    /**
+     * Вектор из size нулей.
+     */
+    public FractionVector(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Длина вектора не может быть отрицательной");
+        }
+        numerators = new long[size];
+        denominators = new long[size];
+        Arrays.fill(denominators, 1);
+    }
+
+    /**
+     * Вектор с копиями числителей и знаменателей.
+     * @throws IllegalArgumentException если массивы разной длины или есть нулевой знаменатель
+     */
+    public FractionVector(long[] numerators, long[] denominators) {
+        this(numerators, denominators, true);
+    }
+
+    // copy == false - массивы используются как есть, знаменатели уже положительны
+    private FractionVector(long[] numerators, long[] denominators, boolean copy) {
+        if (!copy) {
+            this.numerators = numerators;
+            this.denominators = denominators;
+            return;
+        }
+        if (numerators == null || denominators == null) {
+            throw new IllegalArgumentException("Массивы числителей и знаменателей не могут быть null");
+        }
+        if (numerators.length != denominators.length) {
+            throw new IllegalArgumentException("Массивы числителей и знаменателей разной длины");
+        }
+        this.numerators = new long[numerators.length];
+        this.denominators = new long[numerators.length];
+        for (int i = 0; i < numerators.length; i++) {
+            set(i, numerators[i], denominators[i]);
+        }
+    }
+
+    /**
+     * Вектор поверх массивов без копирования и проверок; знаменатели должны быть положительными.
+     */
+    static FractionVector wrap(long[] numerators, long[] denominators) {
+        return new FractionVector(numerators, denominators, false);
+    }
+
+    public static FractionVector of(Fraction... fractions) {
+        if (fractions == null) {
+            throw new IllegalArgumentException("Массив дробей не может быть null");
+        }
+        FractionVector vector = new FractionVector(fractions.length);
+        for (int i = 0; i < fractions.length; i++) {
+            vector.set(i, fractions[i]);
+        }
+        return vector;
+    }
+
+    public int size() {
+        return numerators.length;
+    }
+
+    public void set(int index, Fraction fraction) {
+        if (fraction == null) {
+            throw new IllegalArgumentException("Дробь не может быть null");
+        }
+        checkIndex(index);
+        numerators[index] = fraction.getNumerator();
+        denominators[index] = fraction.getDenominator();
+    }
+
+    /**
+     * @throws ArithmeticException если после переноса знака значение не помещается в long
+     */
+    public void set(int index, long numerator, long denominator) {
+        checkIndex(index);
+        LongFraction fraction = new LongFraction(numerator, denominator);
+        numerators[index] = fraction.getNumerator();
+        denominators[index] = fraction.getDenominator();
+    }
+
+    /**
+     * Элемент в виде точной несократимой дроби.
+     */
+    public ExactFraction getExact(int index) {
+        checkIndex(index);
+        return reduced(index);
+    }
+
+    /**
+     * Элемент в виде Fraction.
+     * @throws ArithmeticException если элемент не помещается в int
+     */
+    public Fraction get(int index) {
+        checkIndex(index);
+        LongFraction fraction = reduced(index);
+        long numerator = fraction.getNumerator();
+        long denominator = fraction.getDenominator();
+        if (numerator != (int) numerator || denominator != (int) denominator) {
+            throw new ArithmeticException("Дробь " + fraction + " не помещается в int, используйте getExact");
+        }
+        return new Fraction((int) numerator, (int) denominator);
+    }
+
+    // Числитель и знаменатель элемента как хранятся, без сокращения
+    long numerator(int index) {
+        return numerators[index];
+    }
+
+    long denominator(int index) {
+        return denominators[index];
+    }
+
+    private LongFraction reduced(int index) {
+        long gcd = FractionMath.gcd(numerators[index], denominators[index]);
+        return LongFraction.ofReduced(numerators[index] / gcd, denominators[index] / gcd);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= numerators.length) {
+            throw new IndexOutOfBoundsException("Нет элемента с номером " + index);
+        }
+    }
+
+    /**
+     * Сокращает все элементы; полезно перед длинной цепочкой операций,
+     * чтобы промежуточные значения дольше помещались в long.
+     */
+    public FractionVector reduce() {
+        forEachBlock(numerators.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                long gcd = FractionMath.gcd(numerators[i], denominators[i]);
+                if (gcd != 1) {
+                    numerators[i] /= gcd;
+                    denominators[i] /= gcd;
+                }
+            }
+        });
+        return this;
+    }
+
+    // Поэлементная арифметика
+
+    public FractionVector add(FractionVector other) {
+        return apply(ADD, checkOperand(other), 0, 0);
+    }
+
+    public FractionVector subtract(FractionVector other) {
+        return apply(SUBTRACT, checkOperand(other), 0, 0);
+    }
+
+    public FractionVector multiply(FractionVector other) {
+        return apply(MULTIPLY, checkOperand(other), 0, 0);
+    }
+
+    /**
+     * @throws IllegalArgumentException если у другого вектора есть нулевой элемент
+     */
+    public FractionVector divide(FractionVector other) {
+        return apply(DIVIDE, checkOperand(other), 0, 0);
+    }
+
+    // Арифметика с одной дробью для всех элементов
+
+    public FractionVector add(Fraction scalar) {
+        checkScalar(scalar);
+        return apply(ADD, null, scalar.getNumerator(), scalar.getDenominator());
+    }
+
+    public FractionVector subtract(Fraction scalar) {
+        checkScalar(scalar);
+        return apply(SUBTRACT, null, scalar.getNumerator(), scalar.getDenominator());
+    }
+
+    public FractionVector multiply(Fraction scalar) {
+        checkScalar(scalar);
+        return apply(MULTIPLY, null, scalar.getNumerator(), scalar.getDenominator());
+    }
+
+    /**
+     * @throws IllegalArgumentException при делении на ноль
+     */
+    public FractionVector divide(Fraction scalar) {
+        checkScalar(scalar);
+        if (scalar.getNumerator() == 0) {
+            throw new IllegalArgumentException("Деление на ноль");
+        }
+        return apply(DIVIDE, null, scalar.getNumerator(), scalar.getDenominator());
+    }
+
+    private FractionVector checkOperand(FractionVector other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Вектор не может быть null");
+        }
+        if (other.size() != size()) {
+            throw new IllegalArgumentException("Векторы разной длины: " + size() + " и " + other.size());
+        }
+        return other;
+    }
+
+    private static void checkScalar(Fraction scalar) {
+        if (scalar == null) {
+            throw new IllegalArgumentException("Дробь не может быть null");
+        }
+    }
+
+    // other == null означает одну дробь scalarNumerator/scalarDenominator для всех элементов
+    private FractionVector apply(int operation, FractionVector other, long scalarNumerator, long scalarDenominator) {
+        long[] resultNumerators = new long[size()];
+        long[] resultDenominators = new long[size()];
+        forEachBlock(size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                long c = other == null ? scalarNumerator : other.numerators[i];
+                long d = other == null ? scalarDenominator : other.denominators[i];
+                try {
+                    combine(operation, numerators[i], denominators[i], c, d,
+                            resultNumerators, resultDenominators, i);
+                } catch (ArithmeticException e) {
+                    combineExact(operation, numerators[i], denominators[i], c, d,
+                            resultNumerators, resultDenominators, i);
+                }
+            }
+        });
+        return wrap(resultNumerators, resultDenominators);
+    }
+
+    /**
+     * Одна операция a/b op c/d без сокращения; при переполнении long
+     * выбрасывает ArithmeticException (Math.multiplyExact), и элемент
+     * вычисляется в combineExact.
+     */
+    private static void combine(int operation, long a, long b, long c, long d,
+                                long[] numerators, long[] denominators, int i) {
+        switch (operation) {
+            case ADD:
+                add(a, b, c, d, numerators, denominators, i);
+                break;
+            case SUBTRACT:
+                add(a, b, Math.negateExact(c), d, numerators, denominators, i);
+                break;
+            case MULTIPLY:
+                numerators[i] = Math.multiplyExact(a, c);
+                denominators[i] = Math.multiplyExact(b, d);
+                break;
+            default:
+                if (c == 0) {
+                    throw new IllegalArgumentException("Деление на ноль");
+                }
+                // Умножение на обратную дробь, знак переносится в числитель
+                if (c < 0) {
+                    numerators[i] = Math.multiplyExact(a, Math.negateExact(d));
+                    denominators[i] = Math.multiplyExact(b, Math.negateExact(c));
+                } else {
+                    numerators[i] = Math.multiplyExact(a, d);
+                    denominators[i] = Math.multiplyExact(b, c);
+                }
+        }
+    }
+
+    private static void add(long a, long b, long c, long d, long[] numerators, long[] denominators, int i) {
+        if (b == d) {
+            numerators[i] = Math.addExact(a, c);
+            denominators[i] = b;
+        } else {
+            numerators[i] = Math.addExact(Math.multiplyExact(a, d), Math.multiplyExact(c, b));
+            denominators[i] = Math.multiplyExact(b, d);
+        }
+    }
+
+    // Та же операция над сокращенными дробями в ExactFraction
+    private static void combineExact(int operation, long a, long b, long c, long d,
+                                     long[] numerators, long[] denominators, int i) {
+        ExactFraction left = ExactFraction.valueOf(a, b);
+        ExactFraction right = ExactFraction.valueOf(c, d);
+        ExactFraction result;
+        switch (operation) {
+            case ADD:
+                result = left.add(right);
+                break;
+            case SUBTRACT:
+                result = left.subtract(right);
+                break;
+            case MULTIPLY:
+                result = left.multiply(right);
+                break;
+            default:
+                result = left.divide(right);
+        }
+        if (!(result instanceof LongFraction)) {
+            throw new ArithmeticException("Элемент " + i + " (" + result + ") не помещается в long");
+        }
+        numerators[i] = ((LongFraction) result).getNumerator();
+        denominators[i] = ((LongFraction) result).getDenominator();
+    }
+
+    // Свертки
+
+    /**
+     * Точная сумма элементов.
+     */
+    public ExactFraction sum() {
+        return accumulate((accumulator, from, to) -> {
+            for (int i = from; i < to; i++) {
+                accumulator.add(numerators[i], denominators[i]);
+            }
+        }).toExactFraction();
+    }
+
+    /**
+     * Точное скалярное произведение: сумма произведений элементов с одинаковыми номерами.
+     * Произведения не сокращаются, а складываются в FractionAccumulator.
+     */
+    public ExactFraction dot(FractionVector other) {
+        checkOperand(other);
+        return accumulate((accumulator, from, to) -> {
+            for (int i = from; i < to; i++) {
+                long numerator;
+                long denominator;
+                try {
+                    numerator = Math.multiplyExact(numerators[i], other.numerators[i]);
+                    denominator = Math.multiplyExact(denominators[i], other.denominators[i]);
+                } catch (ArithmeticException e) {
+                    accumulator.add(ExactFraction.valueOf(numerators[i], denominators[i])
+                            .multiply(ExactFraction.valueOf(other.numerators[i], other.denominators[i])));
+                    continue;
+                }
+                accumulator.add(numerator, denominator);
+            }
+        }).toExactFraction();
+    }
+
+    /**
+     * Префиксные суммы: i-й элемент результата равен сумме элементов 0..i.
+     * Длинный вектор делится на блоки: суммы блоков считаются параллельно,
+     * затем каждый блок заполняется параллельно от суммы предыдущих блоков.
+     * @throws ArithmeticException если префиксная сумма не помещается в long
+     */
+    public FractionVector prefixSums() {
+        int size = size();
+        long[] resultNumerators = new long[size];
+        long[] resultDenominators = new long[size];
+        int blocks = (size + BLOCK - 1) / BLOCK;
+        if (!isParallel(size)) {
+            fillPrefixSums(new FractionAccumulator(), 0, size, resultNumerators, resultDenominators);
+            return wrap(resultNumerators, resultDenominators);
+        }
+        // Суммы блоков, затем сумма всех блоков до каждого блока
+        FractionAccumulator[] offsets = new FractionAccumulator[blocks];
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            FractionAccumulator accumulator = new FractionAccumulator();
+            for (int i = block * BLOCK; i < Math.min(size, (block + 1) * BLOCK); i++) {
+                accumulator.add(numerators[i], denominators[i]);
+            }
+            offsets[block] = accumulator;
+        });
+        FractionAccumulator running = new FractionAccumulator();
+        for (int block = 0; block < blocks; block++) {
+            FractionAccumulator blockSum = offsets[block];
+            offsets[block] = new FractionAccumulator().merge(running);
+            running.merge(blockSum);
+        }
+        IntStream.range(0, blocks).parallel().forEach(block -> fillPrefixSums(offsets[block],
+                block * BLOCK, Math.min(size, (block + 1) * BLOCK), resultNumerators, resultDenominators));
+        return wrap(resultNumerators, resultDenominators);
+    }
+
+    private void fillPrefixSums(FractionAccumulator accumulator, int from, int to,
+                                long[] resultNumerators, long[] resultDenominators) {
+        for (int i = from; i < to; i++) {
+            accumulator.add(numerators[i], denominators[i]);
+            if (!accumulator.fitsLong()) {
+                throw new ArithmeticException("Префиксная сумма " + i + " (" + accumulator.toExactFraction()
+                        + ") не помещается в long");
+            }
+            resultNumerators[i] = accumulator.numerator();
+            resultDenominators[i] = accumulator.denominator();
+        }
+    }
+
+    // Диапазон [from, to) элементов
+    private interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private interface RangeAccumulation {
+        void run(FractionAccumulator accumulator, int from, int to);
+    }
+
+    private static boolean isParallel(int size) {
+        return size > BLOCK * PARALLEL_BLOCKS && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    private static void forEachBlock(int size, RangeAction action) {
+        if (!isParallel(size)) {
+            action.run(0, size);
+            return;
+        }
+        IntStream.range(0, (size + BLOCK - 1) / BLOCK).parallel()
+                .forEach(block -> action.run(block * BLOCK, Math.min(size, (block + 1) * BLOCK)));
+    }
+
+    private FractionAccumulator accumulate(RangeAccumulation accumulation) {
+        int size = size();
+        if (!isParallel(size)) {
+            FractionAccumulator accumulator = new FractionAccumulator();
+            accumulation.run(accumulator, 0, size);
+            return accumulator;
+        }
+        return IntStream.range(0, (size + BLOCK - 1) / BLOCK).parallel()
+                .collect(FractionAccumulator::new,
+                        (accumulator, block) -> accumulation.run(accumulator, block * BLOCK,
+                                Math.min(size, (block + 1) * BLOCK)),
+                        FractionAccumulator::merge);
+    }
+
+    public Fraction[] toFractions() {
+        Fraction[] fractions = new Fraction[size()];
+        for (int i = 0; i < fractions.length; i++) {
+            fractions[i] = get(i);
+        }
+        return fractions;
+    }
+
+    /**
+     * Векторы равны, если равны их длины и значения всех элементов
+     * (независимо от того, сокращены ли элементы).
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof FractionVector)) return false;
+        FractionVector vector = (FractionVector) obj;
+        if (vector.size() != size()) return false;
+        for (int i = 0; i < size(); i++) {
+            // a/b == c/d, если ad == cb; произведения сравниваются в 128 битах
+            long left = numerators[i] * vector.denominators[i];
+            long right = vector.numerators[i] * denominators[i];
+            if (left != right || Math.multiplyHigh(numerators[i], vector.denominators[i])
+                    != Math.multiplyHigh(vector.numerators[i], denominators[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size(); i++) {
+            hash = 31 * hash + reduced(i).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(reduced(i));
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,147 @@
+package ru.anyanov.fraction;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Потоковая запись дробей "a/b" или "a", по одной в строке, в формате FractionReader.
+ *
+ * Цифры записываются прямо в байтовый буфер, без String на каждую дробь,
+ * и буфер сбрасывается в канал целиком, когда заполнится.
+ * Не забудьте вызвать flush() или close() в конце записи.
+ */
+public final class FractionWriter implements Closeable, Flushable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long count;
+
+    public FractionWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public FractionWriter(WritableByteChannel channel, int bufferSize) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Канал не может быть null");
+        }
+        if (bufferSize < 64) {
+            throw new IllegalArgumentException("Слишком маленький буфер записи");
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Создает файл или перезаписывает существующий.
+     */
+    public static FractionWriter create(Path file) throws IOException {
+        return new FractionWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    public FractionWriter write(Fraction fraction) throws IOException {
+        if (fraction == null) {
+            throw new IllegalArgumentException("Дробь не может быть null");
+        }
+        write(fraction.getNumerator(), fraction.getDenominator());
+        return this;
+    }
+
+    public FractionWriter write(ExactFraction fraction) throws IOException {
+        if (fraction instanceof LongFraction) {
+            LongFraction value = (LongFraction) fraction;
+            write(value.getNumerator(), value.getDenominator());
+        } else if (fraction instanceof BigFraction) {
+            // Длинные дроби редки, их можно записать через String
+            writeBytes((fraction + "\n").getBytes(StandardCharsets.US_ASCII));
+            count++;
+        } else {
+            throw new IllegalArgumentException("Дробь не может быть null");
+        }
+        return this;
+    }
+
+    /**
+     * Записывает все элементы вектора в несократимом виде.
+     */
+    public FractionWriter write(FractionVector vector) throws IOException {
+        if (vector == null) {
+            throw new IllegalArgumentException("Вектор не может быть null");
+        }
+        for (int i = 0; i < vector.size(); i++) {
+            long numerator = vector.numerator(i);
+            long denominator = vector.denominator(i);
+            long gcd = FractionMath.gcd(numerator, denominator);
+            write(numerator / gcd, denominator / gcd);
+        }
+        return this;
+    }
+
+    // Несократимая дробь с положительным знаменателем
+    private void write(long numerator, long denominator) throws IOException {
+        if (buffer.remaining() < FractionFormat.MAX_LONG_LENGTH + 1) {
+            flushBuffer();
+        }
+        int position = FractionFormat.put(buffer, buffer.position(), numerator, denominator);
+        buffer.put(position, (byte) '\n');
+        buffer.position(position + 1);
+        count++;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (buffer.remaining() < bytes.length) {
+            flushBuffer();
+        }
+        if (bytes.length > buffer.capacity()) {
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Число записанных дробей.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Сбрасывает буфер в канал.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    /**
+     * Сбрасывает буфер и закрывает канал.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package ru.anyanov.fraction;
+
+import java.math.BigInteger;
+
+/**
+ * Точная несократимая дробь с числителем и знаменателем в long.
+ * Знаменатель всегда положителен.
+ *
+ * Операции не делают общего сокращения результата: множители сокращаются
+ * заранее, крест-накрест (алгоритмы из Кнута, т. 2, разд. 4.5.1), поэтому
+ * результат получается сразу несократимым, а промежуточные произведения - меньше.
+ * Если результат не помещается в long, операция возвращает BigFraction.
+ */
+public final class LongFraction extends ExactFraction {
+    private static final long serialVersionUID = 1L;
+
+    public static final LongFraction ZERO = ofReduced(0, 1);
+    public static final LongFraction ONE = ofReduced(1, 1);
+
+    // Модуль значения, до которого long переводится в double без потери точности
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    private final long numerator;
+    private final long denominator;
+
+    /**
+     * Создает дробь и сокращает ее.
+     * @throws IllegalArgumentException если знаменатель равен 0
+     * @throws ArithmeticException если после переноса знака в числитель значение
+     * не помещается в long (например, 1/Long.MIN_VALUE); такую дробь создает
+     * ExactFraction.valueOf
+     */
+    public LongFraction(long numerator, long denominator) {
+        this(numerator, denominator, true);
+    }
+
+    // normalize == false - компоненты уже несократимы, знаменатель положителен
+    private LongFraction(long numerator, long denominator, boolean normalize) {
+        if (normalize) {
+            if (denominator == 0) {
+                throw new IllegalArgumentException("Знаменатель не может быть равен 0");
+            }
+            long gcd = FractionMath.gcd(numerator, denominator);
+            numerator /= gcd;
+            denominator /= gcd;
+            if (denominator < 0) {
+                if (numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE) {
+                    throw new ArithmeticException("Дробь " + numerator + "/" + denominator
+                            + " не помещается в long, используйте BigFraction");
+                }
+                numerator = -numerator;
+                denominator = -denominator;
+            }
+        }
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    /**
+     * Дробь из уже несократимых компонент с положительным знаменателем, без проверок.
+     */
+    static LongFraction ofReduced(long numerator, long denominator) {
+        return new LongFraction(numerator, denominator, false);
+    }
+
+    public long getNumerator() { return numerator; }
+    public long getDenominator() { return denominator; }
+
+    @Override
+    public ExactFraction add(ExactFraction other) {
+        checkOperand(other);
+        if (other instanceof LongFraction) {
+            LongFraction fraction = (LongFraction) other;
+            try {
+                return sum(fraction.numerator, fraction.denominator);
+            } catch (ArithmeticException e) {
+                // Переполнение long: считаем в BigInteger
+            }
+        }
+        return toBigFraction().add(other);
+    }
+
+    @Override
+    public ExactFraction subtract(ExactFraction other) {
+        checkOperand(other);
+        if (other instanceof LongFraction) {
+            LongFraction fraction = (LongFraction) other;
+            try {
+                return sum(Math.negateExact(fraction.numerator), fraction.denominator);
+            } catch (ArithmeticException e) {
+                // Переполнение long: считаем в BigInteger
+            }
+        }
+        return toBigFraction().subtract(other);
+    }
+
+    /**
+     * a/b + c/d для несократимых слагаемых. Если g = gcd(b, d) = 1, сумма
+     * (ad + cb)/bd уже несократима. Иначе числитель t = a(d/g) + c(b/g)
+     * может иметь общие делители только с g, и достаточно сократить на gcd(t, g).
+     */
+    private LongFraction sum(long c, long d) {
+        long a = numerator;
+        long b = denominator;
+        long g = FractionMath.gcd(b, d);
+        if (g == 1) {
+            return ofReduced(Math.addExact(Math.multiplyExact(a, d), Math.multiplyExact(c, b)),
+                    Math.multiplyExact(b, d));
+        }
+        long t = Math.addExact(Math.multiplyExact(a, d / g), Math.multiplyExact(c, b / g));
+        if (t == 0) {
+            return ZERO;
+        }
+        long g2 = FractionMath.gcd(t, g);
+        return ofReduced(t / g2, Math.multiplyExact(b / g, d / g2));
+    }
+
+    @Override
+    public ExactFraction multiply(ExactFraction other) {
+        checkOperand(other);
+        if (other instanceof LongFraction) {
+            LongFraction fraction = (LongFraction) other;
+            try {
+                return product(fraction.numerator, fraction.denominator);
+            } catch (ArithmeticException e) {
+                // Переполнение long: считаем в BigInteger
+            }
+        }
+        return toBigFraction().multiply(other);
+    }
+
+    @Override
+    public ExactFraction divide(ExactFraction other) {
+        checkOperand(other);
+        if (other.signum() == 0) {
+            throw new IllegalArgumentException("Деление на ноль");
+        }
+        if (other instanceof LongFraction) {
+            LongFraction fraction = (LongFraction) other;
+            try {
+                // Умножение на обратную дробь, знак переносится в числитель
+                return fraction.numerator < 0
+                        ? product(Math.negateExact(fraction.denominator), Math.negateExact(fraction.numerator))
+                        : product(fraction.denominator, fraction.numerator);
+            } catch (ArithmeticException e) {
+                // Переполнение long: считаем в BigInteger
+            }
+        }
+        return toBigFraction().divide(other);
+    }
+
+    /**
+     * (a/b) * (c/d) для несократимых множителей: a сокращается с d, c - с b,
+     * после этого произведение несократимо.
+     */
+    private LongFraction product(long c, long d) {
+        long a = numerator;
+        long b = denominator;
+        long g1 = FractionMath.gcd(a, d);
+        long g2 = FractionMath.gcd(c, b);
+        return ofReduced(Math.multiplyExact(a / g1, c / g2), Math.multiplyExact(b / g2, d / g1));
+    }
+
+    @Override
+    public ExactFraction negate() {
+        if (numerator == Long.MIN_VALUE) {
+            return toBigFraction().negate();
+        }
+        return ofReduced(-numerator, denominator);
+    }
+
+    @Override
+    public int signum() {
+        return Long.signum(numerator);
+    }
+
+    @Override
+    public BigFraction toBigFraction() {
+        return BigFraction.ofReduced(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+    }
+
+    /**
+     * Сравнивает a/b и c/d по знаку ad - cb. Произведения вычисляются
+     * в 128 битах (Math.multiplyHigh), поэтому переполнения нет и BigInteger не нужен.
+     */
+    @Override
+    public int compareTo(ExactFraction other) {
+        checkOperand(other);
+        if (!(other instanceof LongFraction)) {
+            return toBigFraction().compareTo(other);
+        }
+        LongFraction fraction = (LongFraction) other;
+        long leftHigh = Math.multiplyHigh(numerator, fraction.denominator);
+        long rightHigh = Math.multiplyHigh(fraction.numerator, denominator);
+        if (leftHigh != rightHigh) {
+            return Long.compare(leftHigh, rightHigh);
+        }
+        return Long.compareUnsigned(numerator * fraction.denominator, fraction.numerator * denominator);
+    }
+
+    // Реализация методов Number
+    @Override
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    @Override
+    public long longValue() {
+        return numerator / denominator;
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        if (Math.abs(numerator) <= EXACT_DOUBLE_LIMIT && denominator <= EXACT_DOUBLE_LIMIT) {
+            // Оба числа точно представимы в double, деление округляется корректно
+            return (double) numerator / denominator;
+        }
+        return toBigFraction().doubleValue();
+    }
+
+    @Override
+    public String toString() {
+        if (denominator == 1) {
+            return String.valueOf(numerator);
+        }
+        return numerator + "/" + denominator;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj instanceof BigFraction) return obj.equals(this);
+        if (!(obj instanceof LongFraction)) return false;
+        LongFraction fraction = (LongFraction) obj;
+        return numerator == fraction.numerator && denominator == fraction.denominator;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash(numerator, denominator);
+    }
+}
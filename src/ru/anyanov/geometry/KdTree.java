@@ -0,0 +1,413 @@
+package ru.anyanov.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Двумерное k-d дерево: значения, привязанные к точкам плоскости, с поиском
+ * k ближайших значений и значений внутри круга или прямоугольника.
+ *
+ * Дерево хранится неявно, без объектов-узлов: точки лежат в массивах координат
+ * так, что корень поддерева [from, to) находится посередине, слева - точки
+ * не дальше него по оси разбиения, справа - не ближе; оси чередуются по уровням.
+ * Такое дерево нельзя дополнять, поэтому значения хранятся в нескольких деревьях
+ * (логарифмический метод Бентли-Сакса): добавленные точки образуют новое дерево,
+ * и соседние деревья сравнимого размера перестраиваются в одно. Размеры деревьев
+ * убывают хотя бы вдвое, поэтому деревьев O(log n), а каждая точка
+ * перестраивается O(log n) раз.
+ *
+ * Координаты точек копируются при добавлении, последующие изменения Point
+ * на дерево не влияют. Удаления нет: если точки сдвигаются, дерево строится заново.
+ * Дерево не потокобезопасно.
+ */
+public final class KdTree<T> {
+    // Поддеревья не длиннее этого просматриваются целиком
+    private static final int LEAF_SIZE = 8;
+
+    // Деревья по убыванию размера
+    private final List<Block> blocks = new ArrayList<>();
+    private int size;
+
+    public void add(Point point, T value) {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        Block block = new Block(1);
+        block.set(0, checkCoordinate(point.getX()), checkCoordinate(point.getY()), value);
+        push(block);
+    }
+
+    /**
+     * Добавляет значения одним новым деревом (быстрее, чем по одному).
+     * Значения, для которых location возвращает null, пропускаются.
+     */
+    public void addAll(Collection<? extends T> values, Function<? super T, Point> location) {
+        if (values == null || location == null) {
+            throw new IllegalArgumentException("Значения и функция координат не могут быть null");
+        }
+        Block block = new Block(values.size());
+        int count = 0;
+        for (T value : values) {
+            Point point = location.apply(value);
+            if (point != null) {
+                block.set(count++, checkCoordinate(point.getX()), checkCoordinate(point.getY()), value);
+            }
+        }
+        if (count > 0) {
+            push(block.truncate(count));
+        }
+    }
+
+    private static double checkCoordinate(double coordinate) {
+        if (Double.isNaN(coordinate)) {
+            throw new IllegalArgumentException("Координата точки не может быть NaN");
+        }
+        return coordinate;
+    }
+
+    // Добавляет новое дерево и сливает последние деревья, пока размеры не станут убывать вдвое
+    private void push(Block block) {
+        size += block.size();
+        blocks.add(block);
+        int last = blocks.size() - 1;
+        while (last > 0 && blocks.get(last - 1).size() <= 2 * blocks.get(last).size()) {
+            Block merged = blocks.get(last - 1).merge(blocks.remove(last));
+            blocks.set(--last, merged);
+        }
+        blocks.get(last).build(0, blocks.get(last).size(), 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Значение, ближайшее к точке, или null, если дерево пусто.
+     */
+    public T nearest(Point point) {
+        List<T> nearest = nearest(point, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * До k значений, ближайших к точке, по возрастанию расстояния.
+     * Сложность: O(k log n) в среднем на каждое из O(log n) деревьев
+     */
+    public List<T> nearest(Point point, int k) {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("Количество значений не может быть отрицательным");
+        }
+        Candidates candidates = new Candidates(Math.min(k, size));
+        if (k > 0) {
+            for (Block block : blocks) {
+                block.nearest(point.getX(), point.getY(), 0, block.size(), 0, candidates);
+            }
+        }
+        return candidates.sorted();
+    }
+
+    /**
+     * Значения на расстоянии не больше radius от центра, в произвольном порядке.
+     * Сложность: O(log² n + m), где m - число найденных значений
+     */
+    public List<T> withinRadius(Point center, double radius) {
+        if (center == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        if (!(radius >= 0)) {
+            throw new IllegalArgumentException("Радиус должен быть неотрицательным");
+        }
+        List<T> found = new ArrayList<>();
+        for (Block block : blocks) {
+            block.withinRadius(center.getX(), center.getY(), radius, 0, block.size(), 0, found);
+        }
+        return found;
+    }
+
+    /**
+     * Значения в прямоугольнике [minX, maxX] x [minY, maxY], в произвольном порядке.
+     * Сложность: O(sqrt(n) + m), где m - число найденных значений
+     */
+    public List<T> withinRectangle(double minX, double minY, double maxX, double maxY) {
+        if (!(minX <= maxX && minY <= maxY)) {
+            throw new IllegalArgumentException("Некорректные границы прямоугольника");
+        }
+        List<T> found = new ArrayList<>();
+        for (Block block : blocks) {
+            block.withinRectangle(minX, minY, maxX, maxY, 0, block.size(), 0, found);
+        }
+        return found;
+    }
+
+    /**
+     * Одно неявное k-d дерево: координаты и значения в параллельных массивах.
+     */
+    private final class Block {
+        private final double[] xs;
+        private final double[] ys;
+        private final Object[] values;
+
+        Block(int capacity) {
+            xs = new double[capacity];
+            ys = new double[capacity];
+            values = new Object[capacity];
+        }
+
+        private Block(double[] xs, double[] ys, Object[] values) {
+            this.xs = xs;
+            this.ys = ys;
+            this.values = values;
+        }
+
+        int size() {
+            return xs.length;
+        }
+
+        void set(int index, double x, double y, Object value) {
+            xs[index] = x;
+            ys[index] = y;
+            values[index] = value;
+        }
+
+        Block truncate(int count) {
+            if (count == xs.length) {
+                return this;
+            }
+            return new Block(Arrays.copyOf(xs, count), Arrays.copyOf(ys, count), Arrays.copyOf(values, count));
+        }
+
+        // Точки этого и другого дерева в одном еще не упорядоченном дереве
+        Block merge(Block other) {
+            int total = xs.length + other.xs.length;
+            Block merged = new Block(Arrays.copyOf(xs, total), Arrays.copyOf(ys, total), Arrays.copyOf(values, total));
+            System.arraycopy(other.xs, 0, merged.xs, xs.length, other.xs.length);
+            System.arraycopy(other.ys, 0, merged.ys, xs.length, other.xs.length);
+            System.arraycopy(other.values, 0, merged.values, xs.length, other.xs.length);
+            return merged;
+        }
+
+        double coordinate(int index, int axis) {
+            return axis == 0 ? xs[index] : ys[index];
+        }
+
+        /**
+         * Упорядочивает [from, to) в поддерево: медиана по оси axis в середину
+         * (быстрый выбор Хоара), затем рекурсивно обе половины по другой оси.
+         * Сложность: O(n log n)
+         */
+        void build(int from, int to, int axis) {
+            while (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                select(from, to - 1, middle, axis);
+                build(middle + 1, to, axis ^ 1);
+                to = middle;
+                axis ^= 1;
+            }
+        }
+
+        // Ставит на место k элемент, который стоял бы там после сортировки [left, right] по оси
+        private void select(int left, int right, int k, int axis) {
+            while (right > left) {
+                double pivot = coordinate((left + right) >>> 1, axis);
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (coordinate(i, axis) < pivot) {
+                        i++;
+                    }
+                    while (coordinate(j, axis) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            double x = xs[i];
+            xs[i] = xs[j];
+            xs[j] = x;
+            double y = ys[i];
+            ys[i] = ys[j];
+            ys[j] = y;
+            Object value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+
+        void nearest(double x, double y, int from, int to, int axis, Candidates candidates) {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    candidates.offer(distanceSquared(i, x, y), values[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            double offset = (axis == 0 ? x : y) - coordinate(middle, axis);
+            candidates.offer(distanceSquared(middle, x, y), values[middle]);
+            // Сначала половина, в которой лежит точка; вторую смотрим, только если
+            // разделяющая прямая ближе худшего из найденных кандидатов
+            if (offset < 0) {
+                nearest(x, y, from, middle, axis ^ 1, candidates);
+                if (offset * offset < candidates.bound()) {
+                    nearest(x, y, middle + 1, to, axis ^ 1, candidates);
+                }
+            } else {
+                nearest(x, y, middle + 1, to, axis ^ 1, candidates);
+                if (offset * offset < candidates.bound()) {
+                    nearest(x, y, from, middle, axis ^ 1, candidates);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void withinRadius(double x, double y, double radius, int from, int to, int axis, List<T> found) {
+            double radiusSquared = radius * radius;
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    if (distanceSquared(i, x, y) <= radiusSquared) {
+                        found.add((T) values[i]);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            double offset = (axis == 0 ? x : y) - coordinate(middle, axis);
+            if (distanceSquared(middle, x, y) <= radiusSquared) {
+                found.add((T) values[middle]);
+            }
+            if (offset <= radius) {
+                withinRadius(x, y, radius, from, middle, axis ^ 1, found);
+            }
+            if (offset >= -radius) {
+                withinRadius(x, y, radius, middle + 1, to, axis ^ 1, found);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void withinRectangle(double minX, double minY, double maxX, double maxY,
+                             int from, int to, int axis, List<T> found) {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) {
+                        found.add((T) values[i]);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            double split = coordinate(middle, axis);
+            if (xs[middle] >= minX && xs[middle] <= maxX && ys[middle] >= minY && ys[middle] <= maxY) {
+                found.add((T) values[middle]);
+            }
+            if ((axis == 0 ? minX : minY) <= split) {
+                withinRectangle(minX, minY, maxX, maxY, from, middle, axis ^ 1, found);
+            }
+            if ((axis == 0 ? maxX : maxY) >= split) {
+                withinRectangle(minX, minY, maxX, maxY, middle + 1, to, axis ^ 1, found);
+            }
+        }
+
+        private double distanceSquared(int index, double x, double y) {
+            double dx = xs[index] - x;
+            double dy = ys[index] - y;
+            return dx * dx + dy * dy;
+        }
+    }
+
+    /**
+     * Не больше capacity ближайших найденных значений в двоичной куче,
+     * на вершине которой самое дальнее.
+     */
+    private final class Candidates {
+        private final double[] distances;
+        private final Object[] values;
+        private int count;
+
+        Candidates(int capacity) {
+            distances = new double[capacity];
+            values = new Object[capacity];
+        }
+
+        // Квадрат расстояния, дальше которого кандидаты не нужны
+        double bound() {
+            return count < distances.length ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(double distance, Object value) {
+            if (count < distances.length) {
+                siftUp(count++, distance, value);
+            } else if (distances.length > 0 && distance < distances[0]) {
+                siftDown(0, distance, value);
+            }
+        }
+
+        private void siftUp(int index, double distance, Object value) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (distances[parent] >= distance) {
+                    break;
+                }
+                distances[index] = distances[parent];
+                values[index] = values[parent];
+                index = parent;
+            }
+            distances[index] = distance;
+            values[index] = value;
+        }
+
+        private void siftDown(int index, double distance, Object value) {
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= count) {
+                    break;
+                }
+                if (child + 1 < count && distances[child + 1] > distances[child]) {
+                    child++;
+                }
+                if (distances[child] <= distance) {
+                    break;
+                }
+                distances[index] = distances[child];
+                values[index] = values[child];
+                index = child;
+            }
+            distances[index] = distance;
+            values[index] = value;
+        }
+
+        // Извлекает кандидатов из кучи по убыванию расстояния и разворачивает
+        @SuppressWarnings("unchecked")
+        List<T> sorted() {
+            Object[] result = new Object[count];
+            while (count > 0) {
+                result[--count] = values[0];
+                double lastDistance = distances[count];
+                Object lastValue = values[count];
+                if (count > 0) {
+                    siftDown(0, lastDistance, lastValue);
+                }
+            }
+            return (List<T>) Arrays.asList(result);
+        }
+    }
+}
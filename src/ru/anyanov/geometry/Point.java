@@ -1,7 +1,5 @@
 package ru.anyanov.geometry;
 
-import java.util.Objects;
-
 public class Point implements Cloneable {
     private double x;
     private double y;
@@ -49,8 +47,9 @@ public class Point implements Cloneable {
         return Double.compare(point.x, x) == 0 && Double.compare(point.y, y) == 0;
     }
 
+    // То же значение, что Objects.hash(x, y), но без массива аргументов и упаковки в Double
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return 31 * (31 + Double.hashCode(x)) + Double.hashCode(y);
     }
 }
\ No newline at end of file
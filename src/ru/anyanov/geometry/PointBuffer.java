@@ -0,0 +1,235 @@
+package ru.anyanov.geometry;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Растущий набор точек плоскости, хранящий координаты в двух массивах double
+ * (структура массивов) вместо отдельного объекта Point на каждую точку:
+ * 16 байт на точку без заголовков объектов и ссылок, а пакетные операции
+ * проходят массивы подряд простыми циклами, которые JIT-компилятор
+ * векторизует (SIMD).
+ *
+ * Буфер изменяемый и не потокобезопасный, как и Point.
+ */
+public final class PointBuffer implements Cloneable {
+    private double[] xs;
+    private double[] ys;
+    private int size;
+
+    public PointBuffer() {
+        this(16);
+    }
+
+    public PointBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Емкость не может быть отрицательной");
+        }
+        xs = new double[capacity];
+        ys = new double[capacity];
+    }
+
+    private PointBuffer(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        this.size = xs.length;
+    }
+
+    /**
+     * Буфер с координатами точек коллекции (точки копируются).
+     */
+    public static PointBuffer of(Collection<Point> points) {
+        if (points == null) {
+            throw new IllegalArgumentException("Коллекция точек не может быть null");
+        }
+        PointBuffer buffer = new PointBuffer(points.size());
+        for (Point point : points) {
+            buffer.add(point);
+        }
+        return buffer;
+    }
+
+    public static PointBuffer of(Point... points) {
+        if (points == null) {
+            throw new IllegalArgumentException("Массив точек не может быть null");
+        }
+        return of(Arrays.asList(points));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(double x, double y) {
+        if (size == xs.length) {
+            int capacity = Math.max(16, size * 2);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    public void add(Point point) {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        add(point.getX(), point.getY());
+    }
+
+    public double getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    /**
+     * Новая точка с координатами точки буфера.
+     */
+    public Point get(int index) {
+        checkIndex(index);
+        return new Point(xs[index], ys[index]);
+    }
+
+    public void set(int index, double x, double y) {
+        checkIndex(index);
+        xs[index] = x;
+        ys[index] = y;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Нет точки с номером " + index);
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Некорректный диапазон точек [" + from + ", " + to + ")");
+        }
+    }
+
+    /**
+     * Расстояния от каждой точки буфера до точки point.
+     * @param distances массив длиной не меньше size(), в который записывается результат
+     */
+    public double[] distancesTo(Point point, double[] distances) {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        checkOutput(distances);
+        double x = point.getX();
+        double y = point.getY();
+        for (int i = 0; i < size; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            distances[i] = Math.sqrt(dx * dx + dy * dy);
+        }
+        return distances;
+    }
+
+    /**
+     * Попарные расстояния: i-й элемент - расстояние между i-ми точками этого и другого буфера.
+     * @param distances массив длиной не меньше size(), в который записывается результат
+     */
+    public double[] distancesTo(PointBuffer other, double[] distances) {
+        if (other == null) {
+            throw new IllegalArgumentException("Буфер точек не может быть null");
+        }
+        if (other.size != size) {
+            throw new IllegalArgumentException("В буферах разное число точек: " + size + " и " + other.size);
+        }
+        checkOutput(distances);
+        double[] otherXs = other.xs;
+        double[] otherYs = other.ys;
+        for (int i = 0; i < size; i++) {
+            double dx = xs[i] - otherXs[i];
+            double dy = ys[i] - otherYs[i];
+            distances[i] = Math.sqrt(dx * dx + dy * dy);
+        }
+        return distances;
+    }
+
+    private void checkOutput(double[] distances) {
+        if (distances == null || distances.length < size) {
+            throw new IllegalArgumentException("Массив результатов должен вмещать " + size + " значений");
+        }
+    }
+
+    /**
+     * Сдвигает все точки буфера на (dx, dy).
+     */
+    public void translate(double dx, double dy) {
+        for (int i = 0; i < size; i++) {
+            xs[i] += dx;
+        }
+        for (int i = 0; i < size; i++) {
+            ys[i] += dy;
+        }
+    }
+
+    /**
+     * Наименьший прямоугольник со сторонами вдоль осей, содержащий все точки:
+     * {minX, minY, maxX, maxY} (в порядке аргументов KdTree.withinRectangle).
+     * @throws IllegalStateException если буфер пуст
+     */
+    public double[] boundingBox() {
+        if (size == 0) {
+            throw new IllegalStateException("Буфер точек пуст");
+        }
+        // Обычные сравнения вместо Math.min/max: они не обрабатывают NaN и -0.0
+        // особым образом, поэтому цикл сводится к векторным min/max
+        double minX = xs[0];
+        double maxX = xs[0];
+        for (int i = 1; i < size; i++) {
+            double x = xs[i];
+            minX = x < minX ? x : minX;
+            maxX = x > maxX ? x : maxX;
+        }
+        double minY = ys[0];
+        double maxY = ys[0];
+        for (int i = 1; i < size; i++) {
+            double y = ys[i];
+            minY = y < minY ? y : minY;
+            maxY = y > maxY ? y : maxY;
+        }
+        return new double[] {minX, minY, maxX, maxY};
+    }
+
+    /**
+     * Новый буфер с копиями точек [from, to).
+     */
+    public PointBuffer copyRange(int from, int to) {
+        checkRange(from, to);
+        return new PointBuffer(Arrays.copyOfRange(xs, from, to), Arrays.copyOfRange(ys, from, to));
+    }
+
+    /**
+     * Копия буфера: одно копирование двух массивов вместо clone() каждой точки.
+     */
+    @Override
+    public PointBuffer clone() {
+        return copyRange(0, size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("PointBuffer[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('(').append(xs[i]).append(", ").append(ys[i]).append(')');
+        }
+        return builder.append(']').toString();
+    }
+}
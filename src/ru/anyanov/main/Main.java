@@ -1,7 +1,9 @@
 package ru.anyanov.main;
 
+import ru.anyanov.fraction.ExactFraction;
 import ru.anyanov.fraction.Fraction;
 import ru.anyanov.city.City;
+import ru.anyanov.city.RoadGraph;
 import ru.anyanov.city.Route;
 import ru.anyanov.geometry.Point;
 import ru.anyanov.math.MathUtils;
@@ -11,6 +13,7 @@ import java.util.*;
 public class Main {
     private static Scanner scanner = new Scanner(System.in);
     private static Map<String, City> cities = new HashMap<>();
+    private static RoadGraph graph = new RoadGraph();
 
     // ========== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ДЛЯ ВВОДА ==========
 
@@ -99,7 +102,7 @@ public class Main {
             return;
         }
 
-        City city = new City(name);
+        City city = new City(name, graph);
         cities.put(name, city);
         System.out.println("Город " + name + " успешно создан!");
     }
@@ -217,6 +220,11 @@ public class Main {
             System.out.println("Массив городов: " + Arrays.toString(path));
             System.out.println("Количество городов в пути: " + path.length);
         }
+
+        route.setMode(Route.Mode.CHEAPEST);
+        if (path.length != 0) {
+            System.out.println("Самый дешевый маршрут: " + route + " (стоимость: " + route.getCost() + ")");
+        }
     }
 
     private static void interactiveCityManagement() {
@@ -261,6 +269,7 @@ public class Main {
                     break;
                 case 6:
                     cities.clear();
+                    graph = new RoadGraph();
                     System.out.println("Все города очищены!");
                     break;
                 case 7:
@@ -305,6 +314,11 @@ public class Main {
             System.out.println(f1 + " как float: " + f1.floatValue());
             System.out.println(f1 + " как double: " + f1.doubleValue());
 
+            System.out.println("\nТочные дроби без переполнения (ExactFraction):");
+            ExactFraction big = ExactFraction.valueOf(f1).add(ExactFraction.valueOf(Long.MAX_VALUE, 1));
+            System.out.println(f1 + " + " + Long.MAX_VALUE + " = " + big
+                    + " (" + big.getClass().getSimpleName() + ")");
+
         } catch (Exception e) {
             System.out.println("Ошибка: " + e.getMessage());
         }
@@ -319,12 +333,14 @@ public class Main {
         // Создаем фиксированную карту городов как в задании 1.3.3
         cities.clear();
 
-        City A = new City("A");
-        City B = new City("B");
-        City C = new City("C");
-        City D = new City("D");
-        City E = new City("E");
-        City F = new City("F");
+        // Отдельный граф, чтобы не смешивать карту с городами пользователя
+        RoadGraph demoGraph = new RoadGraph();
+        City A = new City("A", demoGraph);
+        City B = new City("B", demoGraph);
+        City C = new City("C", demoGraph);
+        City D = new City("D", demoGraph);
+        City E = new City("E", demoGraph);
+        City F = new City("F", demoGraph);
 
         // Добавляем дороги
         A.addRoad(B, 5);
@@ -351,6 +367,8 @@ public class Main {
         Route route = new Route(F, D);
         System.out.println("Маршрут: " + route);
         System.out.println("Массив городов: " + Arrays.toString(route.getRoute()));
+        route.setMode(Route.Mode.CHEAPEST);
+        System.out.println("Самый дешевый маршрут: " + route + " (стоимость: " + route.getCost() + ")");
 
         // Восстанавливаем города пользователя
         cities.clear();
@@ -383,6 +401,9 @@ public class Main {
         Fraction f4 = new Fraction(1, 3);
         double sum3 = MathUtils.sum(f4, 1);
         System.out.println("1/3 + 1 = " + sum3);
+
+        // Дроби складываются точно, без перевода в double
+        System.out.println("3/5 + 49/12 + 3/2 = " + MathUtils.sumExact(f1, f2, f3));
     }
 
     private static void demonstratePower(String[] args) {
@@ -1,22 +1,408 @@
 package ru.anyanov.math;
 
+import ru.anyanov.fraction.ExactFraction;
+import ru.anyanov.fraction.Fraction;
+import ru.anyanov.fraction.FractionAccumulator;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
 // Статический импорт для коротких имен
 import static java.lang.Integer.parseInt;
 import static java.lang.Math.pow;
 
 public class MathUtils {
+    // Размер части массива чисел, которую суммирует одна задача
+    static final int PRIMITIVE_BLOCK = 1 << 16;
+    // Дроби складываются на порядки медленнее чисел, поэтому части меньше
+    static final int FRACTION_BLOCK = 1 << 10;
+    // Степени по массивам операндов: до 63 умножений на элемент
+    static final int POWER_BLOCK = 1 << 12;
+    // Массивы длиннее PARALLEL_BLOCKS частей суммируются параллельно в общем ForkJoinPool
+    static final int PARALLEL_BLOCKS = 16;
 
+    /**
+     * Сумма чисел любых типов. Целые числа (Byte, Short, Integer, Long), Fraction
+     * и ExactFraction складываются точно и переводятся в double один раз, в конце;
+     * остальные числа складываются в double с компенсацией ошибок округления.
+     */
     public static double sum(Number... numbers) {
+        if (numbers == null) {
+            throw new IllegalArgumentException("Массив чисел не может быть null");
+        }
+        FractionAccumulator exact = new FractionAccumulator();
         double total = 0.0;
+        double compensation = 0.0;
         for (Number num : numbers) {
-            total += num.doubleValue();
+            if (num instanceof Fraction) {
+                exact.add((Fraction) num);
+            } else if (num instanceof ExactFraction) {
+                exact.add((ExactFraction) num);
+            } else if (num instanceof Integer || num instanceof Long || num instanceof Short || num instanceof Byte) {
+                exact.add(num.longValue());
+            } else if (num != null) {
+                double value = num.doubleValue();
+                double next = total + value;
+                compensation += roundingError(total, value, next);
+                total = next;
+            } else {
+                throw new IllegalArgumentException("Число не может быть null");
+            }
+        }
+        double value = exact.toExactFraction().doubleValue();
+        double next = total + value;
+        return finish(next, compensation + roundingError(total, value, next));
+    }
+
+    /**
+     * Точная сумма дробей. Большие массивы суммируются параллельно.
+     * Отдельное имя нужно, чтобы sum(f1, f2) по-прежнему вызывал sum(Number...) и возвращал double.
+     */
+    public static ExactFraction sumExact(Fraction... fractions) {
+        if (fractions == null) {
+            throw new IllegalArgumentException("Массив дробей не может быть null");
+        }
+        return reduce(fractions.length, FRACTION_BLOCK, (from, to) -> {
+            FractionAccumulator accumulator = new FractionAccumulator();
+            for (int i = from; i < to; i++) {
+                accumulator.add(fractions[i]);
+            }
+            return accumulator;
+        }, FractionAccumulator::merge).toExactFraction();
+    }
+
+    /**
+     * Точная сумма; для массивов короче 2^32 элементов переполнения быть не может.
+     * Большие массивы суммируются параллельно.
+     */
+    public static long sum(int[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Массив чисел не может быть null");
+        }
+        return reduce(values.length, PRIMITIVE_BLOCK, (from, to) -> {
+            long total = 0;
+            for (int i = from; i < to; i++) {
+                total += values[i];
+            }
+            return total;
+        }, Long::sum);
+    }
+
+    /**
+     * Точная сумма. Промежуточные суммы хранятся в 128 битах, поэтому результат
+     * не зависит от порядка слагаемых и разбиения массива на части.
+     * Большие массивы суммируются параллельно.
+     * @throws ArithmeticException если сумма не помещается в long
+     */
+    public static long sum(long[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Массив чисел не может быть null");
+        }
+        long[] total = reduce(values.length, PRIMITIVE_BLOCK, (from, to) -> {
+            long high = 0;
+            long low = 0;
+            for (int i = from; i < to; i++) {
+                long value = values[i];
+                long next = low + value;
+                // Старшее слово: знаковое расширение слагаемого и перенос из младшего
+                high += (value >> 63) + (((low & value) | ((low | value) & ~next)) >>> 63);
+                low = next;
+            }
+            return new long[] {high, low};
+        }, (left, right) -> {
+            long low = left[1] + right[1];
+            long carry = ((left[1] & right[1]) | ((left[1] | right[1]) & ~low)) >>> 63;
+            return new long[] {left[0] + right[0] + carry, low};
+        });
+        if (total[0] != total[1] >> 63) {
+            throw new ArithmeticException("Сумма не помещается в long");
+        }
+        return total[1];
+    }
+
+    /**
+     * Сумма с компенсацией ошибок округления (алгоритм Ноймайера): потерянные
+     * при сложении младшие разряды накапливаются отдельно и прибавляются в конце,
+     * поэтому ошибка почти не растет с длиной массива (если только слагаемые
+     * не сокращаются до суммы, намного меньшей суммы их модулей). Большие массивы суммируются
+     * параллельно; результат от этого может отличаться в последнем разряде.
+     */
+    public static double sum(double[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Массив чисел не может быть null");
+        }
+        double[] total = reduce(values.length, PRIMITIVE_BLOCK, (from, to) -> compensatedSum(values, from, to),
+                (left, right) -> {
+                    double next = left[0] + right[0];
+                    return new double[] {next, left[1] + right[1] + roundingError(left[0], right[0], next)};
+                });
+        return finish(total[0], total[1]);
+    }
+
+    // Сумма и накопленная поправка части массива
+    private static double[] compensatedSum(double[] values, int from, int to) {
+        // Четыре независимые цепочки сложений: процессор выполняет их одновременно,
+        // а не ждет результата предыдущего сложения
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        double error0 = 0, error1 = 0, error2 = 0, error3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            double next0 = sum0 + values[i];
+            double next1 = sum1 + values[i + 1];
+            double next2 = sum2 + values[i + 2];
+            double next3 = sum3 + values[i + 3];
+            error0 += roundingError(sum0, values[i], next0);
+            error1 += roundingError(sum1, values[i + 1], next1);
+            error2 += roundingError(sum2, values[i + 2], next2);
+            error3 += roundingError(sum3, values[i + 3], next3);
+            sum0 = next0;
+            sum1 = next1;
+            sum2 = next2;
+            sum3 = next3;
+        }
+        for (; i < to; i++) {
+            double next = sum0 + values[i];
+            error0 += roundingError(sum0, values[i], next);
+            sum0 = next;
+        }
+        double sum01 = sum0 + sum1;
+        double sum23 = sum2 + sum3;
+        double total = sum01 + sum23;
+        double error = error0 + error1 + error2 + error3 + roundingError(sum0, sum1, sum01)
+                + roundingError(sum2, sum3, sum23) + roundingError(sum01, sum23, total);
+        return new double[] {total, error};
+    }
+
+    // Ошибка округления при вычислении sum = a + b
+    private static double roundingError(double a, double b, double sum) {
+        return Math.abs(a) >= Math.abs(b) ? (a - sum) + b : (b - sum) + a;
+    }
+
+    private static double finish(double sum, double compensation) {
+        double result = sum + compensation;
+        // При бесконечных слагаемых поправка равна NaN, а сумма верна
+        return Double.isNaN(result) && !Double.isNaN(sum) ? sum : result;
+    }
+
+    // Сумма (или другой результат) для элементов массива с индексами [from, to)
+    private interface RangeSum<T> {
+        T sum(int from, int to);
+    }
+
+    // Длинный массив делится на части, суммы частей объединяются в общем ForkJoinPool
+    private static <T> T reduce(int length, int block, RangeSum<T> leaf, BinaryOperator<T> combine) {
+        if (length <= block * PARALLEL_BLOCKS || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            return leaf.sum(0, length);
+        }
+        return ForkJoinPool.commonPool().invoke(new SumTask<>(leaf, combine, block, 0, length));
+    }
+
+    // Рекурсивно делит диапазон пополам, пока он длиннее block
+    private static final class SumTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeSum<T> leaf;
+        private final BinaryOperator<T> combine;
+        private final int block;
+        private final int from;
+        private final int to;
+
+        SumTask(RangeSum<T> leaf, BinaryOperator<T> combine, int block, int from, int to) {
+            this.leaf = leaf;
+            this.combine = combine;
+            this.block = block;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= block) {
+                return leaf.sum(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SumTask<T> right = new SumTask<>(leaf, combine, block, middle, to);
+            right.fork();
+            T left = new SumTask<>(leaf, combine, block, from, middle).compute();
+            return combine.apply(left, right.join());
         }
-        return total;
     }
 
+    /**
+     * base в степени exponent, вычисленная точно возведением в квадрат:
+     * не больше 2 * 31 умножений вместо exponent.
+     * @throws IllegalArgumentException если показатель отрицателен
+     * @throws ArithmeticException если результат не помещается в long
+     */
+    public static long powerExact(long base, int exponent) {
+        checkExponent(exponent);
+        long result = 1;
+        while (true) {
+            if ((exponent & 1) != 0) {
+                result = Math.multiplyExact(result, base);
+            }
+            exponent >>>= 1;
+            if (exponent == 0) {
+                return result;
+            }
+            // Квадрат основания войдет в результат множителем, поэтому
+            // его переполнение означает переполнение результата
+            base = Math.multiplyExact(base, base);
+        }
+    }
+
+    /**
+     * Точная степень любой величины: сначала в long, при переполнении в BigInteger.
+     * @throws IllegalArgumentException если показатель отрицателен
+     */
+    public static BigInteger power(long base, int exponent) {
+        checkExponent(exponent);
+        try {
+            return BigInteger.valueOf(powerExact(base, exponent));
+        } catch (ArithmeticException e) {
+            return BigInteger.valueOf(base).pow(exponent);
+        }
+    }
+
+    /**
+     * base в степени exponent по модулю modulus, результат от 0 до modulus - 1.
+     * Отрицательное основание берется по модулю, как в Math.floorMod.
+     * @throws IllegalArgumentException если показатель отрицателен или модуль не положителен
+     */
+    public static long powMod(long base, long exponent, long modulus) {
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Показатель степени не может быть отрицательным");
+        }
+        if (modulus <= 0) {
+            throw new IllegalArgumentException("Модуль должен быть положительным");
+        }
+        if (modulus > 1L << 32) {
+            // Произведение остатков не помещается в 64 бита
+            return BigInteger.valueOf(base).modPow(BigInteger.valueOf(exponent), BigInteger.valueOf(modulus))
+                    .longValue();
+        }
+        // Остатки меньше 2^32, их произведение помещается в 64 бита без знака
+        long result = 1 % modulus;
+        base = Math.floorMod(base, modulus);
+        while (exponent != 0) {
+            if ((exponent & 1) != 0) {
+                result = Long.remainderUnsigned(result * base, modulus);
+            }
+            exponent >>>= 1;
+            base = Long.remainderUnsigned(base * base, modulus);
+        }
+        return result;
+    }
+
+    /**
+     * Поэлементные точные степени bases[i] в степени exponents[i].
+     * Большие массивы обрабатываются параллельно.
+     * @throws IllegalArgumentException если массивы разной длины или есть отрицательный показатель
+     */
+    public static BigInteger[] power(long[] bases, int[] exponents) {
+        checkOperands(bases, exponents == null ? -1 : exponents.length);
+        checkExponents(exponents);
+        BigInteger[] results = new BigInteger[bases.length];
+        fill(bases.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                results[i] = power(bases[i], exponents[i]);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Поэлементные степени bases[i] в степени exponents[i] в long.
+     * Большие массивы обрабатываются параллельно.
+     * @throws IllegalArgumentException если массивы разной длины или есть отрицательный показатель
+     * @throws ArithmeticException если какая-нибудь степень не помещается в long
+     */
+    public static long[] powerExact(long[] bases, int[] exponents) {
+        checkOperands(bases, exponents == null ? -1 : exponents.length);
+        checkExponents(exponents);
+        long[] results = new long[bases.length];
+        fill(bases.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                results[i] = powerExact(bases[i], exponents[i]);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Поэлементные степени bases[i] в степени exponents[i] по модулю modulus.
+     * Большие массивы обрабатываются параллельно.
+     * @throws IllegalArgumentException если массивы разной длины, есть отрицательный
+     * показатель или модуль не положителен
+     */
+    public static long[] powMod(long[] bases, long[] exponents, long modulus) {
+        checkOperands(bases, exponents == null ? -1 : exponents.length);
+        for (long exponent : exponents) {
+            if (exponent < 0) {
+                throw new IllegalArgumentException("Показатель степени не может быть отрицательным");
+            }
+        }
+        if (modulus <= 0) {
+            throw new IllegalArgumentException("Модуль должен быть положительным");
+        }
+        long[] results = new long[bases.length];
+        fill(bases.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                results[i] = powMod(bases[i], exponents[i], modulus);
+            }
+        });
+        return results;
+    }
+
+    private static void checkExponent(int exponent) {
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Показатель степени не может быть отрицательным");
+        }
+    }
+
+    // Проверяется до вычислений, чтобы ошибка не возникла в середине параллельного заполнения
+    private static void checkExponents(int[] exponents) {
+        for (int exponent : exponents) {
+            checkExponent(exponent);
+        }
+    }
+
+    private static void checkOperands(long[] bases, int exponentsLength) {
+        if (bases == null || exponentsLength < 0) {
+            throw new IllegalArgumentException("Массивы оснований и показателей не могут быть null");
+        }
+        if (bases.length != exponentsLength) {
+            throw new IllegalArgumentException("Массивы оснований и показателей разной длины");
+        }
+    }
+
+    // Заполнение результатов для элементов [from, to)
+    private interface RangeAction {
+        void run(int from, int to);
+    }
+
+    // Части массива заполняются через reduce с пустым результатом
+    private static void fill(int length, RangeAction action) {
+        reduce(length, POWER_BLOCK, (from, to) -> {
+            action.run(from, to);
+            return null;
+        }, (left, right) -> null);
+    }
+
+    /**
+     * X в степени Y. При неотрицательном Y степень считается точно
+     * и округляется до double один раз, поэтому целые результаты до 2^53 точны.
+     */
     public static double power(String xStr, String yStr) {
         int x = parseInt(xStr);  // Короткое имя благодаря static import
         int y = parseInt(yStr);
+        // Если |X|^Y заведомо не меньше 2^1024, результат бесконечен, и точный расчет не нужен
+        int bits = 64 - Long.numberOfLeadingZeros(Math.abs((long) x));
+        if (y >= 0 && (long) y * (bits - 1) < Double.MAX_EXPONENT + 1) {
+            return power(x, y).doubleValue();
+        }
         return pow(x, y);        // Короткое имя благодаря static import
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package ru.anyanov.city;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Идентичность городов: по графу и идентификатору, а не по названию или дорогам.
+ */
+class CityTest {
+
+    @Test
+    void eachConstructorCallCreatesNewCity() {
+        City first = new City("CityTest");
+        City second = new City("CityTest");
+        assertNotEquals(first, second);
+        assertSame(RoadGraph.getDefault(), first.getGraph());
+        // Поиск по названию в графе по умолчанию находит первый город
+        assertSame(first, RoadGraph.getDefault().getOrCreateCity("CityTest"));
+    }
+
+    @Test
+    void namesAreUniqueInOwnGraph() {
+        RoadGraph graph = new RoadGraph();
+        City city = new City("A", graph);
+        assertThrows(IllegalArgumentException.class, () -> new City("A", graph));
+        assertSame(city, graph.getOrCreateCity("A"));
+        assertSame(city, graph.getCity("A"));
+        assertEquals(1, graph.size());
+    }
+
+    @Test
+    void hashCodeDoesNotDependOnRoads() {
+        RoadGraph graph = new RoadGraph();
+        City a = new City("A", graph);
+        City b = new City("B", graph);
+        Set<City> set = new HashSet<>();
+        set.add(a);
+        int hash = a.hashCode();
+        a.addRoad(b, 5);
+        assertEquals(hash, a.hashCode());
+        assertTrue(set.contains(a));
+        assertEquals(5, (int) a.getRoads().get(b));
+        assertTrue(b.getNeighborNames().contains("A"));
+    }
+}
@@ -0,0 +1,363 @@
+package ru.anyanov.city;
+
+import org.junit.jupiter.api.Test;
+import ru.anyanov.geometry.Point;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнивает режимы Route с простыми эталонными поисками на случайных графах с фиксированным seed:
+ * BFS по числу городов, Дейкстру по стоимости и перебор всех простых путей для алгоритма Йена.
+ */
+class RouteTest {
+    private static final int GRAPHS = 30;
+    private static final int QUERIES = 40;
+
+    @Test
+    void fewestCitiesMatchesBreadthFirstSearch() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int g = 0; g < GRAPHS; g++) {
+            RoadGraph graph = randomGraph(random, 20 + random.nextInt(80), 1.5 + random.nextDouble() * 2);
+            for (int q = 0; q < QUERIES; q++) {
+                City start = graph.getCity(random.nextInt(graph.size()));
+                City end = graph.getCity(random.nextInt(graph.size()));
+                City[] route = new Route(start, end, Route.Mode.FEWEST_CITIES).getRoute();
+                int hops = hops(graph, start.getId(), end.getId());
+                if (hops < 0) {
+                    assertEquals(0, route.length, "маршрут " + start + " -> " + end);
+                } else {
+                    assertEquals(hops + 1, route.length, "маршрут " + start + " -> " + end);
+                    checkPath(graph, route, start, end);
+                }
+            }
+        }
+    }
+
+    @Test
+    void costModesMatchDijkstra() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int g = 0; g < GRAPHS; g++) {
+            RoadGraph graph = randomGraph(random, 20 + random.nextInt(80), 1.5 + random.nextDouble() * 2);
+            graph.prepareContractionHierarchy();
+            for (int q = 0; q < QUERIES; q++) {
+                City start = graph.getCity(random.nextInt(graph.size()));
+                City end = graph.getCity(random.nextInt(graph.size()));
+                long expected = dijkstra(graph, start.getId(), end.getId());
+                for (Route.Mode mode : new Route.Mode[]{
+                        Route.Mode.CHEAPEST, Route.Mode.A_STAR, Route.Mode.CONTRACTION_HIERARCHY}) {
+                    Route route = new Route(start, end, mode);
+                    assertEquals(expected, route.getCost(), mode + " " + start + " -> " + end);
+                    if (expected >= 0) {
+                        checkPath(graph, route.getRoute(), start, end);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void contractionHierarchyFollowsRoadChanges() {
+        SplittableRandom random = new SplittableRandom(3);
+        RoadGraph graph = randomGraph(random, 60, 2.5);
+        graph.prepareContractionHierarchy();
+        for (int step = 0; step < 50; step++) {
+            City first = graph.getCity(random.nextInt(graph.size()));
+            City second = graph.getCity(random.nextInt(graph.size()));
+            if (first != second) {
+                if (random.nextBoolean()) {
+                    first.addRoad(second, random.nextInt(100));
+                } else {
+                    first.removeRoad(second);
+                }
+            }
+            if (step % 10 == 0) {
+                graph.prepareContractionHierarchy();
+            }
+            City start = graph.getCity(random.nextInt(graph.size()));
+            City end = graph.getCity(random.nextInt(graph.size()));
+            assertEquals(dijkstra(graph, start.getId(), end.getId()),
+                    new Route(start, end, Route.Mode.CONTRACTION_HIERARCHY).getCost());
+        }
+    }
+
+    @Test
+    void hierarchyDependsOnRoadsOnly() throws IOException {
+        SplittableRandom random = new SplittableRandom(7);
+        RoadGraph graph = randomGraph(random, 40, 2.5);
+        assertFalse(graph.hasCurrentContractionHierarchy());
+        graph.prepareContractionHierarchy();
+        graph.getCity(0).setLocation(new Point(-5, -5));
+        assertTrue(graph.hasCurrentContractionHierarchy(), "координаты не меняют иерархию");
+
+        // Одиночное изменение дороги делает иерархию устаревшей до явного вызова
+        graph.getCity(0).removeRoad(graph.getCity(1));
+        graph.getCity(0).addRoad(graph.getCity(1), 1);
+        assertFalse(graph.hasCurrentContractionHierarchy());
+
+        // Пакетный импорт перестраивает уже построенную иерархию
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("Город ").append(random.nextInt(40)).append(",Новый ").append(random.nextInt(20))
+                    .append(',').append(random.nextInt(100)).append('\n');
+        }
+        new RoadImporter(graph).importFrom(Channels.newChannel(
+                new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8))));
+        assertTrue(graph.hasCurrentContractionHierarchy());
+        for (int q = 0; q < QUERIES; q++) {
+            City start = graph.getCity(random.nextInt(graph.size()));
+            City end = graph.getCity(random.nextInt(graph.size()));
+            assertEquals(dijkstra(graph, start.getId(), end.getId()),
+                    new Route(start, end, Route.Mode.CONTRACTION_HIERARCHY).getCost());
+        }
+
+        // Без подготовленной иерархии импорт ее не строит
+        RoadGraph plain = new RoadGraph();
+        new RoadImporter(plain).importFrom(Channels.newChannel(
+                new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8))));
+        assertFalse(plain.hasCurrentContractionHierarchy());
+    }
+
+    @Test
+    void bufferRouteMatchesArrayRoute() {
+        SplittableRandom random = new SplittableRandom(4);
+        RoadGraph graph = randomGraph(random, 80, 2.5);
+        City[] buffer = new City[graph.size()];
+        for (int q = 0; q < QUERIES; q++) {
+            Route route = new Route(graph.getCity(random.nextInt(graph.size())),
+                    graph.getCity(random.nextInt(graph.size())), Route.Mode.CHEAPEST);
+            int length = route.getRoute(buffer);
+            assertArrayEquals(route.getRoute(), Arrays.copyOf(buffer, length));
+        }
+    }
+
+    @Test
+    void alternativesMatchEnumeratedSimplePaths() {
+        SplittableRandom random = new SplittableRandom(5);
+        for (int g = 0; g < GRAPHS; g++) {
+            // Графы маленькие, чтобы все простые пути можно было перебрать
+            RoadGraph graph = randomGraph(random, 6 + random.nextInt(4), 2 + random.nextDouble());
+            for (int q = 0; q < 10; q++) {
+                City start = graph.getCity(random.nextInt(graph.size()));
+                City end = graph.getCity(random.nextInt(graph.size()));
+                if (start == end) {
+                    continue;
+                }
+                int k = 1 + random.nextInt(8);
+                List<Route.Alternative> alternatives = new Route(start, end).getAlternatives(k);
+                List<Long> expected = simplePathCosts(graph, start.getId(), end.getId());
+                assertEquals(Math.min(k, expected.size()), alternatives.size(), start + " -> " + end);
+
+                Set<List<City>> distinct = new HashSet<>();
+                long previous = -1;
+                for (int i = 0; i < alternatives.size(); i++) {
+                    Route.Alternative alternative = alternatives.get(i);
+                    City[] cities = alternative.getCities();
+                    checkPath(graph, cities, start, end);
+                    assertEquals(cities.length, new HashSet<>(Arrays.asList(cities)).size(),
+                            "маршрут с повтором города: " + alternative);
+                    assertTrue(distinct.add(Arrays.asList(cities)), "повторный маршрут: " + alternative);
+                    assertEquals(pathCost(graph, cities), alternative.getCost());
+                    assertTrue(alternative.getCost() >= previous, "стоимости не по возрастанию");
+                    assertEquals((long) expected.get(i), alternative.getCost());
+                    previous = alternative.getCost();
+                }
+            }
+        }
+    }
+
+    @Test
+    void concurrentGraphRoutesMatchSingleThreadedGraph() {
+        SplittableRandom random = new SplittableRandom(6);
+        RoadGraph graph = randomGraph(random, 80, 2.5);
+        RoadGraph concurrent = RoadGraph.createConcurrent();
+        for (int id = 0; id < graph.size(); id++) {
+            new City(graph.getCity(id).getName(), concurrent);
+        }
+        for (int id = 0; id < graph.size(); id++) {
+            for (City neighbor : graph.getCity(id).getRoads().keySet()) {
+                concurrent.getCity(id).addRoad(concurrent.getCity(neighbor.getId()),
+                        graph.getCost(id, neighbor.getId()));
+            }
+        }
+        for (int q = 0; q < QUERIES; q++) {
+            int start = random.nextInt(graph.size());
+            int end = random.nextInt(graph.size());
+            assertEquals(new Route(graph.getCity(start), graph.getCity(end), Route.Mode.CHEAPEST).getCost(),
+                    new Route(concurrent.getCity(start), concurrent.getCity(end), Route.Mode.CHEAPEST).getCost());
+        }
+    }
+
+    @Test
+    void concurrentSnapshotsSeeWholeRoads() throws InterruptedException {
+        RoadGraph graph = RoadGraph.createConcurrent();
+        for (int id = 0; id < 200; id++) {
+            new City("Город " + id, graph);
+        }
+        Thread[] writers = new Thread[3];
+        for (int w = 0; w < writers.length; w++) {
+            SplittableRandom random = new SplittableRandom(10 + w);
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    City first = graph.getCity(random.nextInt(graph.size()));
+                    City second = graph.getCity(random.nextInt(graph.size()));
+                    if (first == second) {
+                        continue;
+                    }
+                    if (random.nextBoolean()) {
+                        first.addRoad(second, random.nextInt(100));
+                    } else {
+                        first.removeRoad(second);
+                    }
+                    if (i % 1000 == 0) {
+                        new City("Новый " + writer + " " + i, graph).addRoad(first, 1);
+                    }
+                }
+            });
+            writers[w].start();
+        }
+        // Каждый снимок, собранный во время записи, должен содержать обе стороны каждой дороги
+        int snapshots = 0;
+        while (Arrays.stream(writers).anyMatch(Thread::isAlive) || snapshots == 0) {
+            CompiledGraph snapshot = graph.compile();
+            snapshots++;
+            for (int from = 0; from < snapshot.size; from++) {
+                for (int edge = snapshot.offsets[from]; edge < snapshot.offsets[from + 1]; edge++) {
+                    int to = snapshot.targets[edge];
+                    int back = -1;
+                    for (int reverse = snapshot.offsets[to]; reverse < snapshot.offsets[to + 1]; reverse++) {
+                        if (snapshot.targets[reverse] == from) {
+                            back = snapshot.costs[reverse];
+                        }
+                    }
+                    assertEquals(snapshot.costs[edge], back, "дорога " + from + " - " + to);
+                }
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+    }
+
+    // Случайный граф: degree дорог на город в среднем, случайные координаты
+    // и стоимости, поэтому в графе обычно есть несколько компонент связности
+    private static RoadGraph randomGraph(SplittableRandom random, int size, double degree) {
+        RoadGraph graph = new RoadGraph();
+        for (int id = 0; id < size; id++) {
+            new City("Город " + id, graph, new Point(random.nextInt(1000), random.nextInt(1000)));
+        }
+        int roads = (int) (size * degree / 2);
+        for (int i = 0; i < roads; i++) {
+            City first = graph.getCity(random.nextInt(size));
+            City second = graph.getCity(random.nextInt(size));
+            if (first != second) {
+                first.addRoad(second, random.nextInt(100));
+            }
+        }
+        return graph;
+    }
+
+    // Каждые два соседних города маршрута соединены дорогой
+    private static void checkPath(RoadGraph graph, City[] route, City start, City end) {
+        assertEquals(start, route[0]);
+        assertEquals(end, route[route.length - 1]);
+        for (int i = 1; i < route.length; i++) {
+            assertTrue(graph.getCost(route[i - 1].getId(), route[i].getId()) >= 0,
+                    "нет дороги " + route[i - 1] + " - " + route[i]);
+        }
+    }
+
+    private static long pathCost(RoadGraph graph, City[] route) {
+        long cost = 0;
+        for (int i = 1; i < route.length; i++) {
+            cost += graph.getCost(route[i - 1].getId(), route[i].getId());
+        }
+        return cost;
+    }
+
+    // Число дорог кратчайшего по числу городов пути или -1
+    private static int hops(RoadGraph graph, int source, int target) {
+        int[] distance = new int[graph.size()];
+        Arrays.fill(distance, -1);
+        distance[source] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            RoadGraph.Adjacency roads = graph.adjacency(current);
+            for (int i = 0; i < roads.degree; i++) {
+                if (distance[roads.targets[i]] < 0) {
+                    distance[roads.targets[i]] = distance[current] + 1;
+                    queue.add(roads.targets[i]);
+                }
+            }
+        }
+        return distance[target];
+    }
+
+    // Стоимость самого дешевого пути или -1
+    private static long dijkstra(RoadGraph graph, int source, int target) {
+        long[] distance = new long[graph.size()];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        distance[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[]{0, source});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int current = (int) entry[1];
+            if (entry[0] > distance[current]) {
+                continue;
+            }
+            RoadGraph.Adjacency roads = graph.adjacency(current);
+            for (int i = 0; i < roads.degree; i++) {
+                long candidate = entry[0] + roads.costs[i];
+                if (candidate < distance[roads.targets[i]]) {
+                    distance[roads.targets[i]] = candidate;
+                    queue.add(new long[]{candidate, roads.targets[i]});
+                }
+            }
+        }
+        return distance[target] == Long.MAX_VALUE ? -1 : distance[target];
+    }
+
+    // Стоимости всех простых путей по возрастанию
+    private static List<Long> simplePathCosts(RoadGraph graph, int source, int target) {
+        List<Long> costs = new ArrayList<>();
+        enumerate(graph, source, target, new boolean[graph.size()], 0, costs);
+        Collections.sort(costs);
+        return costs;
+    }
+
+    private static void enumerate(RoadGraph graph, int current, int target, boolean[] visited,
+                                  long cost, List<Long> costs) {
+        if (current == target) {
+            costs.add(cost);
+            return;
+        }
+        visited[current] = true;
+        RoadGraph.Adjacency roads = graph.adjacency(current);
+        for (int i = 0; i < roads.degree; i++) {
+            if (!visited[roads.targets[i]]) {
+                enumerate(graph, roads.targets[i], target, visited, cost + roads.costs[i], costs);
+            }
+        }
+        visited[current] = false;
+    }
+}
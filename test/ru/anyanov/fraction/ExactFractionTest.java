@@ -0,0 +1,101 @@
+package ru.anyanov.fraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Переход LongFraction -> BigFraction при переполнении long и обратно,
+ * сверка арифметики с вычислениями в BigInteger.
+ */
+class ExactFractionTest {
+    private static final long MAX = Long.MAX_VALUE;
+    private static final long MIN = Long.MIN_VALUE;
+
+    @Test
+    void overflowPromotesToBigFraction() {
+        ExactFraction max = ExactFraction.valueOf(MAX, 1);
+        ExactFraction sum = max.add(ExactFraction.valueOf(1, 1));
+        assertInstanceOf(BigFraction.class, sum);
+        assertEquals(big(BigInteger.valueOf(MAX).add(BigInteger.ONE), BigInteger.ONE), sum);
+
+        ExactFraction product = ExactFraction.valueOf(MAX, 3).multiply(ExactFraction.valueOf(MAX, 5));
+        assertInstanceOf(BigFraction.class, product);
+
+        ExactFraction negated = ExactFraction.valueOf(MIN, 1).negate();
+        assertInstanceOf(BigFraction.class, negated);
+        assertEquals(BigInteger.valueOf(MIN).negate(), negated.toBigFraction().getNumerator());
+    }
+
+    @Test
+    void resultsThatFitLongAreDemoted() {
+        ExactFraction max = ExactFraction.valueOf(MAX, 1);
+        ExactFraction back = max.add(ExactFraction.valueOf(1, 1)).subtract(ExactFraction.valueOf(1, 1));
+        assertInstanceOf(LongFraction.class, back);
+        assertEquals(max, back);
+
+        ExactFraction big = ExactFraction.valueOf(MAX, 1).multiply(ExactFraction.valueOf(MAX, 1));
+        assertInstanceOf(LongFraction.class, big.divide(ExactFraction.valueOf(MAX, 1)));
+    }
+
+    @Test
+    void valueOfHandlesLongMinValue() {
+        // Знаменатель Long.MIN_VALUE после переноса знака не помещается в long
+        ExactFraction fraction = ExactFraction.valueOf(1, MIN);
+        assertInstanceOf(BigFraction.class, fraction);
+        assertEquals(-1, fraction.signum());
+        assertEquals(BigInteger.valueOf(MIN).negate(), fraction.toBigFraction().getDenominator());
+
+        assertEquals(ExactFraction.valueOf(1, 1), ExactFraction.valueOf(MIN, MIN));
+        assertEquals(ExactFraction.valueOf(1L << 62, 1), ExactFraction.valueOf(MIN, -2));
+        assertThrows(ArithmeticException.class, () -> new LongFraction(1, MIN));
+        assertThrows(IllegalArgumentException.class, () -> ExactFraction.valueOf(1, 0));
+    }
+
+    @Test
+    void representationsAreEqualByValue() {
+        BigFraction big = new BigFraction(BigInteger.valueOf(6), BigInteger.valueOf(-4));
+        LongFraction small = new LongFraction(-3, 2);
+        assertEquals(small, big);
+        assertEquals(big, small);
+        assertEquals(small.hashCode(), big.hashCode());
+        assertEquals(0, small.compareTo(big));
+    }
+
+    @Test
+    void arithmeticMatchesBigInteger() {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] edges = {0, 1, -1, 2, MAX, MIN, MAX - 1, MIN + 1, 1L << 32, (1L << 32) + 1, 3037000499L};
+        for (int i = 0; i < 20000; i++) {
+            long a = random.nextInt(4) == 0 ? edges[random.nextInt(edges.length)] : random.nextLong();
+            long b = random.nextInt(4) == 0 ? edges[random.nextInt(edges.length)] : random.nextLong();
+            long c = random.nextInt(4) == 0 ? edges[random.nextInt(edges.length)] : random.nextLong(-1000, 1000);
+            long d = random.nextInt(4) == 0 ? edges[random.nextInt(edges.length)] : random.nextLong(1, 1000);
+            if (b == 0 || d == 0) {
+                continue;
+            }
+            ExactFraction left = ExactFraction.valueOf(a, b);
+            ExactFraction right = ExactFraction.valueOf(c, d);
+            BigInteger[] x = {BigInteger.valueOf(a), BigInteger.valueOf(b)};
+            BigInteger[] y = {BigInteger.valueOf(c), BigInteger.valueOf(d)};
+            assertEquals(big(x[0].multiply(y[1]).add(y[0].multiply(x[1])), x[1].multiply(y[1])), left.add(right));
+            assertEquals(big(x[0].multiply(y[1]).subtract(y[0].multiply(x[1])), x[1].multiply(y[1])),
+                    left.subtract(right));
+            assertEquals(big(x[0].multiply(y[0]), x[1].multiply(y[1])), left.multiply(right));
+            if (c != 0) {
+                assertEquals(big(x[0].multiply(y[1]), x[1].multiply(y[0])), left.divide(right));
+            }
+            assertEquals(Integer.signum(big(x[0], x[1]).compareTo(big(y[0], y[1]))),
+                    Integer.signum(left.compareTo(right)));
+        }
+    }
+
+    private static ExactFraction big(BigInteger numerator, BigInteger denominator) {
+        return ExactFraction.valueOf(numerator, denominator);
+    }
+}
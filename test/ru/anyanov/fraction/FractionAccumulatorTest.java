@@ -0,0 +1,96 @@
+package ru.anyanov.fraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Сумма аккумулятора сверяется с суммой в BigInteger, в том числе когда
+ * знаменатель суммы перестает помещаться в long.
+ */
+class FractionAccumulatorTest {
+
+    @Test
+    void sumMatchesBigInteger() {
+        SplittableRandom random = new SplittableRandom(8);
+        for (int round = 0; round < 200; round++) {
+            FractionAccumulator accumulator = new FractionAccumulator();
+            BigInteger numerator = BigInteger.ZERO;
+            BigInteger denominator = BigInteger.ONE;
+            int count = random.nextInt(300);
+            // Маленькие знаменатели дают сумму в long, большие - переход в BigInteger
+            int limit = random.nextBoolean() ? 50 : Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                Fraction fraction = new Fraction(random.nextInt(-limit, limit), random.nextInt(1, limit));
+                accumulator.add(fraction);
+                numerator = numerator.multiply(BigInteger.valueOf(fraction.getDenominator()))
+                        .add(BigInteger.valueOf(fraction.getNumerator()).multiply(denominator));
+                denominator = denominator.multiply(BigInteger.valueOf(fraction.getDenominator()));
+            }
+            assertEquals(ExactFraction.valueOf(numerator, denominator), accumulator.toExactFraction());
+        }
+    }
+
+    @Test
+    void longOverflowSwitchesToBigInteger() {
+        FractionAccumulator accumulator = new FractionAccumulator();
+        accumulator.add(Long.MAX_VALUE).add(Long.MAX_VALUE);
+        ExactFraction sum = accumulator.toExactFraction();
+        assertInstanceOf(BigFraction.class, sum);
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1), sum.toBigFraction().getNumerator());
+
+        // Сумма снова помещается в long и возвращается как LongFraction
+        accumulator.add(Long.MIN_VALUE).add(Long.MIN_VALUE);
+        assertEquals(LongFraction.ofReduced(-2, 1), accumulator.toExactFraction());
+        assertInstanceOf(LongFraction.class, accumulator.toExactFraction());
+    }
+
+    @Test
+    void coprimeDenominatorsOverflowLong() {
+        // Произведение первых простых знаменателей быстро превышает Long.MAX_VALUE
+        int[] primes = IntStream.rangeClosed(2, 200).filter(n -> BigInteger.valueOf(n).isProbablePrime(50)).toArray();
+        FractionAccumulator accumulator = new FractionAccumulator();
+        BigInteger denominator = BigInteger.ONE;
+        BigInteger numerator = BigInteger.ZERO;
+        for (int prime : primes) {
+            accumulator.add(new Fraction(1, prime));
+            numerator = numerator.multiply(BigInteger.valueOf(prime)).add(denominator);
+            denominator = denominator.multiply(BigInteger.valueOf(prime));
+        }
+        assertEquals(ExactFraction.valueOf(numerator, denominator), accumulator.toExactFraction());
+        assertThrows(ArithmeticException.class, accumulator::toFraction);
+    }
+
+    @Test
+    void mergeAndCollectorMatchSequentialSum() {
+        SplittableRandom random = new SplittableRandom(9);
+        Fraction[] fractions = new Fraction[10000];
+        for (int i = 0; i < fractions.length; i++) {
+            fractions[i] = new Fraction(random.nextInt(-1000, 1000), random.nextInt(1, 1000));
+        }
+        ExactFraction expected = new FractionAccumulator().addAll(fractions).toExactFraction();
+
+        FractionAccumulator left = new FractionAccumulator();
+        FractionAccumulator right = new FractionAccumulator();
+        for (int i = 0; i < fractions.length; i++) {
+            (i % 3 == 0 ? left : right).add(fractions[i]);
+        }
+        assertEquals(expected, left.merge(right).toExactFraction());
+        assertEquals(expected, Arrays.stream(fractions).parallel().collect(FractionAccumulator.summing()));
+    }
+
+    @Test
+    void smallSumConvertsToFraction() {
+        FractionAccumulator accumulator = new FractionAccumulator();
+        accumulator.add(new Fraction(1, 3)).add(new Fraction(1, 6));
+        assertEquals(new Fraction(1, 2), accumulator.toFraction());
+        assertEquals(LongFraction.ZERO, new FractionAccumulator().toExactFraction());
+    }
+}
@@ -0,0 +1,105 @@
+package ru.anyanov.fraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Разбор и запись дробей: ошибки формата и переполнения сообщаются исключениями из контракта.
+ */
+class FractionFormatTest {
+
+    @Test
+    void parsesValidText() {
+        assertEquals(new Fraction(-1, 2), FractionFormat.parse(" 2 / -4 "));
+        assertEquals(new Fraction(7, 1), FractionFormat.parse("+7"));
+        assertEquals(new Fraction(Integer.MIN_VALUE, 1), FractionFormat.parse("-2147483648"));
+        assertEquals(new Fraction(1 << 30, 1), FractionFormat.parse("-2147483648/-2"));
+        ByteBuffer buffer = ByteBuffer.wrap("x 3/9 y".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(new Fraction(1, 3), FractionFormat.parse(buffer, 1, 6));
+    }
+
+    @Test
+    void reportsFormatErrorsAsNumberFormatException() {
+        for (String text : new String[]{"", "/", "1/", "a/2", "1//2", "2147483648", "1/-2147483649",
+                "-2147483648/-1", "1/-2147483648"}) {
+            assertThrows(NumberFormatException.class, () -> FractionFormat.parse(text), text);
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+            assertThrows(NumberFormatException.class, () -> FractionFormat.parse(buffer, 0, buffer.limit()), text);
+        }
+        assertThrows(IllegalArgumentException.class, () -> FractionFormat.parse("1/0"));
+    }
+
+    @Test
+    void formatsAndParsesBack() {
+        SplittableRandom random = new SplittableRandom(13);
+        StringBuilder text = new StringBuilder();
+        ByteBuffer buffer = ByteBuffer.allocate(FractionFormat.MAX_LENGTH);
+        for (int i = 0; i < 10000; i++) {
+            Fraction fraction = new Fraction(random.nextInt(), random.nextInt(1, Integer.MAX_VALUE));
+            text.setLength(0);
+            assertEquals(fraction.toString(), FractionFormat.format(fraction, text).toString());
+            buffer.clear();
+            FractionFormat.format(fraction, buffer);
+            assertEquals(fraction, FractionFormat.parse(buffer, 0, buffer.position()));
+        }
+    }
+
+    @Test
+    void readerReportsOverflowAsIOException() throws IOException {
+        try (FractionReader reader = reader("1/2 -2147483648/-1 3")) {
+            assertEquals(new Fraction(1, 2), reader.read());
+            IOException error = assertThrows(IOException.class, reader::read);
+            assertTrue(error.getMessage().startsWith("Дробь 2"));
+            // Числитель и знаменатель такой дроби доступны как записаны
+            assertEquals(Integer.MIN_VALUE, reader.getNumerator());
+            assertThrows(ArithmeticException.class, reader::fraction);
+            assertEquals(new Fraction(3, 1), reader.read());
+            assertNull(reader.read());
+        }
+        // Сумма считается в long и такую дробь принимает
+        try (FractionReader reader = reader("-2147483648/-1, 1")) {
+            assertEquals(ExactFraction.valueOf(2147483649L, 1), reader.sum());
+        }
+        try (FractionReader reader = reader("1/2 x")) {
+            reader.read();
+            assertThrows(IOException.class, reader::read);
+        }
+    }
+
+    @Test
+    void writerOutputReadsBack() throws IOException {
+        SplittableRandom random = new SplittableRandom(14);
+        Fraction[] fractions = new Fraction[5000];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FractionWriter writer = new FractionWriter(Channels.newChannel(out), 64)) {
+            for (int i = 0; i < fractions.length; i++) {
+                fractions[i] = new Fraction(random.nextInt(), random.nextInt(1, Integer.MAX_VALUE));
+                writer.write(fractions[i]);
+            }
+        }
+        try (FractionReader reader = new FractionReader(
+                Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), 64)) {
+            for (Fraction fraction : fractions) {
+                assertEquals(fraction, reader.read());
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    private static FractionReader reader(String text) {
+        return new FractionReader(Channels.newChannel(new ByteArrayInputStream(
+                text.getBytes(StandardCharsets.US_ASCII))));
+    }
+}
@@ -0,0 +1,82 @@
+package ru.anyanov.fraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Нормализация Fraction и ArithmeticException вместо переполнения int.
+ */
+class FractionTest {
+    private static final int MAX = Integer.MAX_VALUE;
+    private static final int MIN = Integer.MIN_VALUE;
+
+    @Test
+    void constructorNormalizesSignAndReduces() {
+        assertEquals("-1/2", new Fraction(4, -8).toString());
+        assertEquals("0", new Fraction(0, -5).toString());
+        assertEquals(new Fraction(1 << 30, 1), new Fraction(MIN, -2));
+        assertEquals(new Fraction(1, 1), new Fraction(MIN, MIN));
+        assertThrows(IllegalArgumentException.class, () -> new Fraction(1, 0));
+    }
+
+    @Test
+    void constructorRejectsValuesOutsideInt() {
+        // После переноса знака 2^31 не помещается в int
+        assertThrows(ArithmeticException.class, () -> new Fraction(MIN, -1));
+        assertThrows(ArithmeticException.class, () -> new Fraction(1, MIN));
+    }
+
+    @Test
+    void arithmeticAtIntBoundaries() {
+        assertEquals(new Fraction(MAX, 1), new Fraction(MAX - 1, 1).add(new Fraction(1, 1)));
+        assertEquals(new Fraction(MIN, 1), new Fraction(MIN + 1, 1).subtract(new Fraction(1, 1)));
+        // Произведение больше int, но сокращается крест-накрест
+        assertEquals(new Fraction(1, 1), new Fraction(MAX, 3).multiply(new Fraction(3, MAX)));
+        assertEquals(new Fraction(MIN, 1), new Fraction(MIN, 1).divide(new Fraction(1, 1)));
+
+        assertThrows(ArithmeticException.class, () -> new Fraction(MAX, 1).add(new Fraction(1, 1)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(MIN, 1).subtract(new Fraction(1, 1)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(MAX, 1).multiply(new Fraction(2, 1)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(MIN, 1).divide(new Fraction(-1, 1)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(1, MAX).add(new Fraction(1, MAX - 1)));
+        assertThrows(IllegalArgumentException.class, () -> new Fraction(1, 2).divide(new Fraction(0, 1)));
+    }
+
+    @Test
+    void arithmeticMatchesExactFractionOrThrows() {
+        SplittableRandom random = new SplittableRandom(12);
+        for (int i = 0; i < 20000; i++) {
+            int limit = random.nextBoolean() ? 1000 : MAX;
+            Fraction left = new Fraction(random.nextInt(-limit, limit), random.nextInt(1, limit));
+            Fraction right = new Fraction(random.nextInt(-limit, limit), random.nextInt(1, limit));
+            ExactFraction x = ExactFraction.valueOf(left);
+            ExactFraction y = ExactFraction.valueOf(right);
+            check(x.add(y), () -> left.add(right));
+            check(x.subtract(y), () -> left.subtract(right));
+            check(x.multiply(y), () -> left.multiply(right));
+            if (right.getNumerator() != 0) {
+                check(x.divide(y), () -> left.divide(right));
+            }
+        }
+    }
+
+    // Результат Fraction совпадает с точным, если точный помещается в int, иначе - ArithmeticException
+    private static void check(ExactFraction expected, Supplier<Fraction> actual) {
+        BigFraction big = expected.toBigFraction();
+        if (fitsInt(big.getNumerator()) && fitsInt(big.getDenominator())) {
+            assertEquals(expected, ExactFraction.valueOf(actual.get()));
+        } else {
+            assertThrows(ArithmeticException.class, actual::get);
+        }
+    }
+
+    private static boolean fitsInt(BigInteger value) {
+        return value.bitLength() < 32;
+    }
+}
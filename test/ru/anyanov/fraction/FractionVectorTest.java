@@ -0,0 +1,99 @@
+package ru.anyanov.fraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Поэлементные операции и свертки FractionVector сверяются с ExactFraction,
+ * в том числе на длинных векторах (параллельно) и при переполнении long.
+ */
+class FractionVectorTest {
+    private static final int LENGTH = 200_000;
+
+    @Test
+    void elementwiseOperationsMatchExactFraction() {
+        SplittableRandom random = new SplittableRandom(15);
+        long[][] left = randomColumns(random, LENGTH, 1000);
+        long[][] right = randomColumns(random, LENGTH, 1000);
+        for (int i = 0; i < LENGTH; i++) {
+            // Делитель не должен быть нулем
+            right[0][i] |= 1;
+        }
+        FractionVector a = new FractionVector(left[0], left[1]);
+        FractionVector b = new FractionVector(right[0], right[1]);
+        FractionVector[] results = {a.add(b), a.subtract(b), a.multiply(b), a.divide(b)};
+        for (int i = 0; i < LENGTH; i += 97) {
+            ExactFraction x = ExactFraction.valueOf(left[0][i], left[1][i]);
+            ExactFraction y = ExactFraction.valueOf(right[0][i], right[1][i]);
+            assertEquals(x.add(y), results[0].getExact(i));
+            assertEquals(x.subtract(y), results[1].getExact(i));
+            assertEquals(x.multiply(y), results[2].getExact(i));
+            assertEquals(x.divide(y), results[3].getExact(i));
+        }
+    }
+
+    @Test
+    void foldsMatchAccumulator() {
+        SplittableRandom random = new SplittableRandom(16);
+        // Знаменатели - степени двойки, чтобы префиксные суммы помещались в long
+        long[][] left = randomColumns(random, LENGTH, 50);
+        long[][] right = randomColumns(random, LENGTH, 50);
+        for (int i = 0; i < LENGTH; i++) {
+            left[1][i] = 1L << random.nextInt(7);
+        }
+        FractionVector a = new FractionVector(left[0], left[1]);
+        FractionVector b = new FractionVector(right[0], right[1]);
+        FractionAccumulator sum = new FractionAccumulator();
+        FractionAccumulator dot = new FractionAccumulator();
+        FractionVector prefix = a.prefixSums();
+        for (int i = 0; i < LENGTH; i++) {
+            ExactFraction x = ExactFraction.valueOf(left[0][i], left[1][i]);
+            sum.add(x);
+            dot.add(x.multiply(ExactFraction.valueOf(right[0][i], right[1][i])));
+            if (i % 1009 == 0) {
+                assertEquals(sum.toExactFraction(), prefix.getExact(i));
+            }
+        }
+        assertEquals(sum.toExactFraction(), a.sum());
+        assertEquals(dot.toExactFraction(), a.dot(b));
+    }
+
+    @Test
+    void overflowFallsBackToReducedElements() {
+        long big = 1L << 40;
+        // (2^40/3) * (3/2^40) переполняет long без сокращения, но равно 1
+        FractionVector a = new FractionVector(new long[]{big, Long.MAX_VALUE}, new long[]{3, 1});
+        FractionVector b = new FractionVector(new long[]{3, 1}, new long[]{big, 1});
+        assertEquals(ExactFraction.valueOf(1, 1), a.multiply(b).getExact(0));
+        assertThrows(ArithmeticException.class, () -> a.add(b));
+    }
+
+    @Test
+    void constructorCopiesAndValidates() {
+        long[] numerators = {2, -3};
+        long[] denominators = {4, -6};
+        FractionVector vector = new FractionVector(numerators, denominators);
+        numerators[0] = 100;
+        assertEquals(new Fraction(1, 2), vector.get(0));
+        assertEquals(new Fraction(1, 2), vector.get(1));
+        assertThrows(IllegalArgumentException.class, () -> new FractionVector(new long[]{1}, new long[]{0}));
+        assertThrows(IllegalArgumentException.class, () -> new FractionVector(new long[]{1}, new long[0]));
+        assertThrows(IllegalArgumentException.class, () -> new FractionVector(null, new long[0]));
+    }
+
+    // Числители и ненулевые знаменатели (со знаком) по модулю меньше limit
+    private static long[][] randomColumns(SplittableRandom random, int length, int limit) {
+        long[][] columns = new long[2][length];
+        for (int i = 0; i < length; i++) {
+            columns[0][i] = random.nextInt(-limit, limit);
+            do {
+                columns[1][i] = random.nextInt(-limit, limit);
+            } while (columns[1][i] == 0);
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.anyanov.math;
+
+import org.junit.jupiter.api.Test;
+import ru.anyanov.fraction.ExactFraction;
+import ru.anyanov.fraction.Fraction;
+import ru.anyanov.fraction.FractionAccumulator;
+import ru.anyanov.fraction.LongFraction;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Точность сумм примитивных массивов, в том числе параллельных (длиннее PARALLEL_BLOCKS блоков).
+ */
+class MathUtilsTest {
+    private static final int PARALLEL_LENGTH = MathUtils.PRIMITIVE_BLOCK * MathUtils.PARALLEL_BLOCKS * 2 + 17;
+
+    @Test
+    void fractionVarargsKeepDoubleSum() {
+        Fraction first = new Fraction(1, 3);
+        Fraction second = new Fraction(1, 6);
+        // Дроби без других чисел по-прежнему складываются через sum(Number...)
+        double sum = MathUtils.sum(first, second);
+        assertEquals(0.5, sum);
+        assertEquals(0.0, MathUtils.sum());
+        assertEquals(ExactFraction.valueOf(1, 2), MathUtils.sumExact(first, second));
+        assertEquals(LongFraction.ZERO, MathUtils.sumExact());
+    }
+
+    @Test
+    void fractionSumIsExactInParallel() {
+        Fraction[] fractions = new Fraction[MathUtils.FRACTION_BLOCK * MathUtils.PARALLEL_BLOCKS * 4 + 3];
+        FractionAccumulator expected = new FractionAccumulator();
+        for (int i = 0; i < fractions.length; i++) {
+            fractions[i] = new Fraction(i % 7 - 3, i % 11 + 1);
+            expected.add(fractions[i]);
+        }
+        assertEquals(expected.toExactFraction(), MathUtils.sumExact(fractions));
+    }
+
+    @Test
+    void longSumIsExactDespiteIntermediateOverflow() {
+        // Промежуточные суммы выходят за long, итоговая помещается
+        long[] values = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE, 5};
+        assertEquals(3, MathUtils.sum(values));
+        assertEquals(Long.MIN_VALUE, MathUtils.sum(new long[]{Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE,
+                -Long.MAX_VALUE, -1, Long.MAX_VALUE, 2}));
+        assertThrows(ArithmeticException.class, () -> MathUtils.sum(new long[]{Long.MAX_VALUE, 1}));
+        assertThrows(ArithmeticException.class, () -> MathUtils.sum(new long[]{Long.MIN_VALUE, -1}));
+        assertEquals(0, MathUtils.sum(new long[0]));
+    }
+
+    @Test
+    void parallelLongSumIsExact() {
+        // Пары x и -x в случайном порядке: части массива переполняют long, а вся сумма равна 12345
+        SplittableRandom random = new SplittableRandom(10);
+        long[] values = new long[PARALLEL_LENGTH];
+        for (int i = 0; i + 1 < values.length; i += 2) {
+            values[i] = random.nextLong(-Long.MAX_VALUE, Long.MAX_VALUE);
+            values[i + 1] = -values[i];
+        }
+        values[values.length - 1] = 12345;
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        assertEquals(12345, MathUtils.sum(values));
+    }
+
+    @Test
+    void intSumDoesNotOverflow() {
+        int[] values = new int[PARALLEL_LENGTH];
+        Arrays.fill(values, Integer.MAX_VALUE);
+        assertEquals((long) Integer.MAX_VALUE * values.length, MathUtils.sum(values));
+    }
+
+    @Test
+    void doubleSumIsCompensated() {
+        // Наивная сумма 0.1 в цикле ошибается уже в шестом знаке после запятой
+        double[] values = new double[PARALLEL_LENGTH];
+        Arrays.fill(values, 0.1);
+        assertEquals(exact(values), MathUtils.sum(values));
+
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble(-1, 1) * Math.pow(10, random.nextInt(-3, 4));
+        }
+        double expected = exact(values);
+        assertEquals(expected, MathUtils.sum(values), 2 * Math.ulp(expected));
+    }
+
+    private static double exact(double[] values) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (double value : values) {
+            sum = sum.add(new BigDecimal(value));
+        }
+        return sum.doubleValue();
+    }
+}